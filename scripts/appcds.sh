@@ -0,0 +1,63 @@
+#!/bin/sh
+#builds build/chessgame.jar and an AppCDS archive of the classes a UCI session loads, then compares the time
+#from starting the JVM to the first bestmove with and without the archive.
+#JAVA_OPTS go to every run: the archive only maps when the module options match the ones it was made with,
+#so give the same --add-modules jdk.incubator.vector here as when playing with a network
+set -e
+cd "$(dirname "$0")/.."
+BUILD=build
+JAR=$BUILD/chessgame.jar
+ARCHIVE=$BUILD/chessgame.jsa
+RUNS=${RUNS:-5}
+
+rm -rf "$BUILD/classes"
+mkdir -p "$BUILD/classes"
+#string concatenation compiled to StringBuilder calls: the invokedynamic version spins method handle classes
+#the first time each place runs, which is most of what is left of startup after the archive
+javac -XDstringConcat=inline --add-modules jdk.incubator.vector -d "$BUILD/classes" $(find src -name '*.java')
+jar cfe "$JAR" application.Main -C "$BUILD/classes" .
+
+#training session: searches, options and FEN parsing, so their classes go into the archive.
+#the pauses let each search finish, since the engine stops a running search when its input ends
+rm -f "$ARCHIVE"
+{
+    printf 'uci\nsetoption name Hash value 16\nsetoption name MultiPV value 2\nisready\n'
+    printf 'ucinewgame\nposition startpos moves e2e4 e7e5 g1f3\ngo depth 6\n'
+    sleep 3
+    printf 'position fen r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1\ngo depth 5\n'
+    sleep 3
+    printf 'quit\n'
+} | java $JAVA_OPTS -XX:ArchiveClassesAtExit="$ARCHIVE" -jar "$JAR" uci > /dev/null
+
+#milliseconds from starting java to reading the first bestmove
+time_to_first_move() {
+    start=$(date +%s%N)
+    {
+        printf 'uci\nisready\nposition startpos\ngo depth 1\n'
+        sleep 1
+        printf 'quit\n'
+    } | java $JAVA_OPTS "$@" -jar "$JAR" uci | while read -r line; do
+        case "$line" in
+            bestmove*) echo $(( ($(date +%s%N) - start) / 1000000 )); break;;
+        esac
+    done
+}
+
+report() {
+    label=$1
+    shift
+    total=0
+    times=""
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        t=$(time_to_first_move "$@")
+        times="$times $t"
+        total=$((total + t))
+        i=$((i + 1))
+    done
+    echo "$label: $((total / RUNS)) ms average of$times"
+}
+
+report "without archive" -Xshare:auto
+report "with archive   " -XX:SharedArchiveFile="$ARCHIVE"
+echo "play with: java $JAVA_OPTS -XX:SharedArchiveFile=$ARCHIVE -jar $JAR uci"
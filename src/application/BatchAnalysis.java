@@ -0,0 +1,59 @@
+package application;
+
+import cache.PositionCache;
+import engine.BatchAnalyzer;
+import engine.SearchLimits;
+import metrics.Metrics;
+import tablebase.Tablebases;
+
+import java.nio.file.Paths;
+
+public class BatchAnalysis {
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: BatchAnalysis <positions> <results> [-depth N] [-movetime ms] [-nodes N] [-threads N] [-hash MB] [-tablebases dir] [-cache MB] [-progress seconds]");
+            return;
+        }
+        int depth = 0;
+        long movetime = 0;
+        long nodes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = 64;
+        long progress = 10;
+        String tablebases = null;
+        int cache = 0;
+        for(int i=2; i+1<args.length; i+=2){
+            String value = args[i+1];
+            switch (args[i]) {
+                case "-depth": depth = Integer.parseInt(value); break;
+                case "-movetime": movetime = Long.parseLong(value); break;
+                case "-nodes": nodes = Long.parseLong(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-hash": hash = Integer.parseInt(value); break;
+                case "-tablebases": tablebases = value; break;
+                case "-cache": cache = Integer.parseInt(value); break;
+                case "-progress": progress = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if(depth == 0 && movetime == 0 && nodes == 0){
+            depth = 6;
+        }
+        BatchAnalyzer analyzer = new BatchAnalyzer(threads, hash, new SearchLimits(depth, movetime, nodes));
+        analyzer.setProgress(System.err, progress * 1000);
+        if(tablebases != null){
+            analyzer.setTablebases(new Tablebases(Paths.get(tablebases)));
+        }
+        PositionCache positionCache = cache > 0 ? new PositionCache(cache * 1024L * 1024) : null;
+        analyzer.setCache(positionCache);
+        long start = System.currentTimeMillis();
+        long count = analyzer.run(Paths.get(args[0]), Paths.get(args[1]));
+        System.err.println(count + " positions in " + (System.currentTimeMillis() - start) + " ms");
+        if(positionCache != null){
+            System.err.println(positionCache.getAnalysisCache());
+        }
+        if(Metrics.ENABLED){
+            Metrics.snapshot().forEach(System.err::println);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package application;
+
+import chess.ChessMatch;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchStatistics;
+import engine.Technique;
+import engine.TranspositionTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+//searches benchmark positions to a fixed depth from an empty hash table, with nodes, time and effective branching
+//factor per depth. after a warm up run at the full depth each configuration is searched several times and its fastest
+//run counts, so the times compare the code and not how far the compiler got. with -compare every technique is also
+//turned off on its own to see what it saves
+public class Bench {
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R w KQ - 0 8",
+            "2r3k1/pp3ppp/2n1b3/3p4/3P4/2PB1N2/P4PPP/4R1K1 w - - 0 20",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        int depth = 5;
+        int hash = 16;
+        String positions = null;
+        EnumSet<Technique> off = EnumSet.noneOf(Technique.class);
+        boolean compare = false;
+        int repeat = 3;
+        for(int i=0; i<args.length; i++){
+            switch (args[i]) {
+                case "-depth": depth = Integer.parseInt(args[++i]); break;
+                case "-hash": hash = Integer.parseInt(args[++i]); break;
+                case "-positions": positions = args[++i]; break;
+                case "-off":
+                    for(String name: args[++i].split("\\+")){
+                        off.add(Technique.parse(name));
+                    }
+                    break;
+                case "-compare": compare = true; break;
+                case "-repeat": repeat = Math.max(1, Integer.parseInt(args[++i])); break;
+                default:
+                    System.out.println("usage: Bench [-depth N] [-hash MB] [-positions file] [-off technique+technique] [-compare] [-repeat N]");
+                    System.out.println("techniques: nullmove, pvs, lmr, futility, razoring, aspiration, checkext");
+                    return;
+            }
+        }
+        List<String> fens = load(positions);
+        //the first configuration is the one asked for, then the same without each technique it still has
+        List<EnumSet<Technique>> configurations = new ArrayList<>();
+        List<Technique> removed = new ArrayList<>();
+        configurations.add(off);
+        if(compare){
+            for(Technique technique: Technique.values()){
+                if(!off.contains(technique)){
+                    EnumSet<Technique> without = EnumSet.copyOf(off);
+                    without.add(technique);
+                    configurations.add(without);
+                    removed.add(technique);
+                }
+            }
+        }
+        //so the first configuration is not timed while the code is still being compiled
+        run(fens, depth, hash, off);
+        Run[] fastest = new Run[configurations.size()];
+        //round by round rather than one configuration after the other, so whatever the compiler still changes
+        //weighs on all of them alike; each keeps its fastest run, the nodes being the same every time
+        for(int round=0; round<repeat; round++){
+            for(int i=0; i<configurations.size(); i++){
+                Run r = run(fens, depth, hash, configurations.get(i));
+                if(fastest[i] == null || r.millis[depth] < fastest[i].millis[depth]){
+                    fastest[i] = r;
+                }
+            }
+        }
+        Run all = fastest[0];
+        System.out.println("depth        nodes       ms    ebf");
+        for(int d=1; d<=depth; d++){
+            String ebf = d > 1 && all.nodes[d - 1] > 0 ? String.format("%6.2f", (double) all.nodes[d] / all.nodes[d - 1]) : "     -";
+            System.out.printf("%5d %12d %8d %s%n", d, all.nodes[d], all.millis[d], ebf);
+        }
+        System.out.printf("%d positions, %d nodes, %d ms, %.0f nodes/s%n", fens.size(), all.nodes[depth], all.millis[depth],
+                all.nodes[depth] * 1000.0 / Math.max(1, all.millis[depth]));
+        for(String line: all.statistics.format()){
+            System.out.println(line);
+        }
+        if(!compare){
+            return;
+        }
+        System.out.println();
+        System.out.println("without                      nodes       ms  nodes saved  ms saved");
+        for(int i=0; i<removed.size(); i++){
+            Run r = fastest[i + 1];
+            System.out.printf("%-24s %12d %8d %12d %9d%n", removed.get(i).getOptionName(), r.nodes[depth], r.millis[depth],
+                    r.nodes[depth] - all.nodes[depth], r.millis[depth] - all.millis[depth]);
+        }
+    }
+
+    private static List<String> load(String file){
+        if(file == null){
+            return List.of(POSITIONS);
+        }
+        try {
+            List<String> fens = new ArrayList<>();
+            for(String line: Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)){
+                line = line.trim();
+                if(!line.isEmpty() && !line.startsWith("#")){
+                    fens.add(line);
+                }
+            }
+            return fens;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //nodes and time to reach each depth, summed over the positions; a position solved early counts its last iteration
+    private static Run run(List<String> fens, int depth, int hash, EnumSet<Technique> off){
+        Run run = new Run(depth);
+        for(String fen: fens){
+            Search search = new Search(new TranspositionTable(hash));
+            for(Technique technique: off){
+                search.setEnabled(technique, false);
+            }
+            long[] nodes = new long[depth + 1];
+            long[] millis = new long[depth + 1];
+            search.setListener(result -> {
+                for(int d=result.getDepth(); d<=depth; d++){
+                    nodes[d] = result.getNodes();
+                    millis[d] = result.getTimeMillis();
+                }
+            });
+            search.search(new ChessMatch(fen), SearchLimits.depth(depth));
+            for(int d=1; d<=depth; d++){
+                run.nodes[d] += nodes[d];
+                run.millis[d] += millis[d];
+            }
+            run.statistics.add(search.getStatistics());
+        }
+        return run;
+    }
+
+    private static final class Run {
+        private final long[] nodes;
+        private final long[] millis;
+        private final SearchStatistics statistics = new SearchStatistics();
+
+        Run(int depth) {
+            nodes = new long[depth + 1];
+            millis = new long[depth + 1];
+        }
+    }
+}
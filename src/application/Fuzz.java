@@ -0,0 +1,42 @@
+package application;
+
+import fuzz.Mismatch;
+import fuzz.MoveGeneratorFuzzer;
+
+import java.util.List;
+
+//exits with status 1 when the move generator disagrees with the legacy one, so it can run as a build step
+public class Fuzz {
+    public static void main(String[] args) {
+        int games = 1000;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int plies = 200;
+        int failures = 5;
+        for(int i=0; i+1<args.length; i+=2){
+            String value = args[i+1];
+            switch (args[i]) {
+                case "-games": games = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-plies": plies = Integer.parseInt(value); break;
+                case "-failures": failures = Integer.parseInt(value); break;
+                default:
+                    System.out.println("usage: Fuzz [-games N] [-seed S] [-threads N] [-plies N] [-failures N]");
+                    return;
+            }
+        }
+        MoveGeneratorFuzzer fuzzer = new MoveGeneratorFuzzer(threads, plies, failures);
+        long start = System.currentTimeMillis();
+        List<Mismatch> found = fuzzer.run(seed, games);
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        System.err.printf("seed %d: %d games, %d plies in %.1f s, %.1f games/s, %.0f plies/s%n",
+                seed, fuzzer.getGames(), fuzzer.getPlies(), seconds, fuzzer.getGames() / seconds, fuzzer.getPlies() / seconds);
+        for(Mismatch mismatch: found){
+            System.out.println(mismatch);
+        }
+        if(!found.isEmpty()){
+            System.exit(1);
+        }
+    }
+}
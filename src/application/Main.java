@@ -3,7 +3,9 @@ package application;
 import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPosition;
+import tablebase.Tablebases;
 
+import java.nio.file.Paths;
 import java.util.InputMismatchException;
 import java.util.Scanner;
 
@@ -11,9 +13,17 @@ import java.util.Scanner;
 // then press Enter. You can now see whitespace characters in your code.
 public class Main {
     public static void main(String[] args) {
+        if(args.length > 0 && args[0].equals("uci")){
+            Uci.main(args);
+            return;
+        }
         Scanner sc = new Scanner(System.in);
         ChessMatch match = new ChessMatch();
-        while(match.isNotCheckmate()){
+        String tablebasePath = System.getProperty("tablebases");
+        if(tablebasePath != null){
+            match.setTablebases(new Tablebases(Paths.get(tablebasePath)));
+        }
+        while(!match.isGameOver()){
             try {
                 UI.clearScreen();
                 UI.printChessMatch(match, match.getCapturedPieces());
@@ -0,0 +1,53 @@
+package application;
+
+import engine.SearchLimits;
+import puzzle.PuzzleMiner;
+
+import java.nio.file.Paths;
+
+public class MinePuzzles {
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: MinePuzzles <games.pgn> <puzzles> [-checkpoint file] [-depth N] [-nodes N] [-filters N] [-verifiers N] [-hash MB]");
+            System.out.println("       [-swing cp] [-win cp] [-margin cp] [-progress seconds]");
+            return;
+        }
+        String checkpoint = args[1] + ".checkpoint";
+        int depth = 0;
+        long nodes = 0;
+        int processors = Runtime.getRuntime().availableProcessors();
+        //replaying is cheap next to searching
+        int filters = Math.max(1, processors / 4);
+        int verifiers = Math.max(1, processors - filters);
+        int hash = 16;
+        int swing = 200;
+        int win = 200;
+        int margin = 150;
+        long progress = 30;
+        for(int i=2; i+1<args.length; i+=2){
+            String value = args[i+1];
+            switch (args[i]) {
+                case "-checkpoint": checkpoint = value; break;
+                case "-depth": depth = Integer.parseInt(value); break;
+                case "-nodes": nodes = Long.parseLong(value); break;
+                case "-filters": filters = Integer.parseInt(value); break;
+                case "-verifiers": verifiers = Integer.parseInt(value); break;
+                case "-hash": hash = Integer.parseInt(value); break;
+                case "-swing": swing = Integer.parseInt(value); break;
+                case "-win": win = Integer.parseInt(value); break;
+                case "-margin": margin = Integer.parseInt(value); break;
+                case "-progress": progress = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if(depth == 0 && nodes == 0){
+            depth = 5;
+        }
+        PuzzleMiner miner = new PuzzleMiner(filters, verifiers, hash, new SearchLimits(depth, 0, nodes));
+        miner.setThresholds(swing, win, margin);
+        miner.setProgress(System.err, progress * 1000);
+        long start = System.currentTimeMillis();
+        long count = miner.run(Paths.get(args[0]), Paths.get(args[1]), Paths.get(checkpoint));
+        System.err.println(count + " puzzles in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
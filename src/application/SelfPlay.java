@@ -0,0 +1,56 @@
+package application;
+
+import engine.MatchScore;
+import engine.Tournament;
+import engine.TournamentPlayer;
+import metrics.Metrics;
+
+import java.nio.file.Paths;
+
+public class SelfPlay {
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: SelfPlay <games> <pgn> [-first options] [-second options] [-openings file] [-chess960 N] [-concurrency N] [-sprt elo0,elo1] [-progress seconds]");
+            System.out.println("player options: depth=N,movetime=ms,nodes=N,tc=seconds+increment,hash=MB,nnue=file,off=technique+technique");
+            return;
+        }
+        String first = "nodes=20000";
+        String second = null;
+        String openings = null;
+        String sprt = null;
+        int chess960 = 0;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        long progress = 10;
+        for(int i=2; i+1<args.length; i+=2){
+            String value = args[i+1];
+            switch (args[i]) {
+                case "-first": first = value; break;
+                case "-second": second = value; break;
+                case "-openings": openings = value; break;
+                case "-chess960": chess960 = Integer.parseInt(value); break;
+                case "-concurrency": concurrency = Integer.parseInt(value); break;
+                case "-sprt": sprt = value; break;
+                case "-progress": progress = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Tournament tournament = new Tournament(TournamentPlayer.parse("first", first), TournamentPlayer.parse("second", second == null ? first : second), concurrency);
+        tournament.setProgress(System.err, progress * 1000);
+        if(openings != null){
+            tournament.loadOpenings(Paths.get(openings));
+        }
+        if(chess960 > 0){
+            tournament.addChess960Openings(chess960, System.nanoTime());
+        }
+        if(sprt != null){
+            String[] bounds = sprt.split(",");
+            tournament.setSprt(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), 0.05, 0.05);
+        }
+        long start = System.currentTimeMillis();
+        MatchScore score = tournament.run(Integer.parseInt(args[0]), Paths.get(args[1]));
+        System.err.println(score.getGames() + " games in " + (System.currentTimeMillis() - start) + " ms: " + score);
+        if(Metrics.ENABLED){
+            Metrics.snapshot().forEach(System.err::println);
+        }
+    }
+}
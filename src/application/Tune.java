@@ -0,0 +1,50 @@
+package application;
+
+import engine.EvaluationTuner;
+
+import java.nio.file.Paths;
+
+public class Tune {
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: Tune <output> <positions>... [-iterations N] [-rate R] [-threads N] [-progress iterations]");
+            System.out.println("positions: FEN or EPD lines ending with the result, or .pgn games");
+            return;
+        }
+        int iterations = 1000;
+        double rate = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int progress = 50;
+        int files = args.length;
+        for(int i=1; i<args.length; i++){
+            if(args[i].startsWith("-")){
+                files = Math.min(files, i);
+                String value = args[++i];
+                switch (args[i-1]) {
+                    case "-iterations": iterations = Integer.parseInt(value); break;
+                    case "-rate": rate = Double.parseDouble(value); break;
+                    case "-threads": threads = Integer.parseInt(value); break;
+                    case "-progress": progress = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i-1]);
+                }
+            }
+        }
+        EvaluationTuner tuner = new EvaluationTuner(threads);
+        long start = System.currentTimeMillis();
+        for(int i=1; i<files; i++){
+            tuner.load(Paths.get(args[i]));
+        }
+        System.err.println(tuner.getSize() + " positions loaded in " + (System.currentTimeMillis() - start) + " ms, " + tuner.getRejected() + " rejected");
+        start = System.currentTimeMillis();
+        System.err.printf("scale %.3f, error %.6f%n", tuner.fitScale(), tuner.getError());
+        for(int i=1; i<=iterations; i++){
+            tuner.step(rate);
+            if(i % progress == 0 || i == iterations){
+                double minutes = Math.max(1, System.currentTimeMillis() - start) / 60000.0;
+                System.err.printf("iteration %d, error %.6f, %.0f iterations/min%n", i, tuner.getError(), i / minutes);
+            }
+        }
+        tuner.write(Paths.get(args[0]));
+        tuner.shutdown();
+    }
+}
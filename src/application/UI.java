@@ -20,69 +20,129 @@ public class UI {
 
     public static final String ANSI_BLUE_BACKGROUND = "\u001B[44m";
 
+    //with -Dui.diff=true the board is repainted in place, only the squares that changed are written
+    private static final boolean DIFF = Boolean.getBoolean("ui.diff");
+    //the frame being composed, written to System.out at once
+    private static final StringBuilder frame = new StringBuilder(4096);
+    //piece, color and background of each square as last drawn
+    private static final int[][] cells = new int[8][8];
+    //the cursor is at the top left corner, where the board is drawn
+    private static boolean atTop;
+    //the screen shows a board drawn at the top that the next frame can be compared to
+    private static boolean drawn;
+
     // https://stackoverflow.com/questions/2979383/java-clear-the-console
     public static void clearScreen() {
-        System.out.print("\033[H\033[2J");
+        if(DIFF && drawn){
+            System.out.print("\033[H");
+        }else{
+            System.out.print("\033[H\033[2J");
+        }
         System.out.flush();
+        atTop = true;
     }
 
     public static void printBoard(ChessPiece[][] pieces){
-        for (int i=0; i< pieces.length; i++){
-            System.out.print(8-i+" ");
-            for (int j=0; j<pieces[0].length; j++){
-                printPiece(pieces[i][j], false);
-            }
-            System.out.println();
-        }
-        System.out.print("  a b c d e f g h");
+        appendBoard(pieces, null);
+        writeFrame();
     }
 
     public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves){
+        appendBoard(pieces, possibleMoves);
+        writeFrame();
+    }
 
+    private static void appendBoard(ChessPiece[][] pieces, boolean[][] possibleMoves){
+        boolean repaint = DIFF && drawn && atTop && pieces.length == cells.length;
         for (int i=0; i< pieces.length; i++){
-            System.out.print(8-i+" ");
+            if(!repaint){
+                frame.append(8-i).append(' ');
+            }
             for (int j=0; j<pieces[0].length; j++){
-                printPiece(pieces[i][j], possibleMoves[i][j]);
+                boolean background = possibleMoves != null && possibleMoves[i][j];
+                int cell = cellOf(pieces[i][j], background);
+                if(!repaint || cell != cells[i][j]){
+                    if(repaint){
+                        frame.append("\033[").append(i + 1).append(';').append(3 + 2 * j).append('H');
+                    }
+                    appendPiece(pieces[i][j], background);
+                }
+                cells[i][j] = cell;
+            }
+            if(!repaint){
+                frame.append('\n');
             }
-            System.out.println();
         }
-        System.out.print("  a b c d e f g h");
+        if(repaint){
+            //back to the end of the column letters, and whatever was printed below the board is cleared
+            frame.append("\033[").append(pieces.length + 1).append(";18H\033[J");
+        }else{
+            frame.append("  a b c d e f g h");
+        }
+        drawn = DIFF && atTop && pieces.length == cells.length;
+        atTop = false;
+    }
+
+    private static int cellOf(ChessPiece piece, boolean background){
+        int cell = background ? 1 : 0;
+        if(piece != null){
+            cell |= piece.toString().charAt(0) << 2 | (piece.getColor() == Color.WHITE ? 2 : 0);
+        }
+        return cell;
     }
 
-    private static void printPiece(ChessPiece piece, boolean background){
+    private static void appendPiece(ChessPiece piece, boolean background){
         if(background){
-            System.out.print(ANSI_BLUE_BACKGROUND);
+            frame.append(ANSI_BLUE_BACKGROUND);
         }
         if(piece == null){
-            System.out.print("-"+ ANSI_RESET);
+            frame.append('-').append(ANSI_RESET);
         }else{
             if (piece.getColor() == Color.WHITE) {
-                System.out.print(ANSI_WHITE + piece + ANSI_RESET);
+                frame.append(ANSI_WHITE).append(piece).append(ANSI_RESET);
             }
             else {
-                System.out.print(ANSI_YELLOW + piece + ANSI_RESET);
+                frame.append(ANSI_YELLOW).append(piece).append(ANSI_RESET);
             }
         }
-        System.out.print(" ");
+        frame.append(' ');
+    }
+
+    //one write, so slow terminals get the frame in as few packets as possible
+    private static void writeFrame(){
+        System.out.print(frame);
+        System.out.flush();
+        frame.setLength(0);
     }
 
     public static void printChessMatch(ChessMatch match, List <ChessPiece> captured){
-        printBoard(match.getPieces());
-        System.out.println();
-        System.out.println();
-        printCapturedPieces(captured);
-        if(match.isNotCheckmate()){
-            System.out.println("Turn: " + match.getTurn());
-            System.out.println();
-            System.out.println("Waiting player: " + match.getCurrentPlayer());
-            System.out.println();
+        appendBoard(match.getPieces(), null);
+        frame.append("\n\n");
+        appendCapturedPieces(captured);
+        if(!match.isGameOver()){
+            frame.append("Turn: ").append(match.getTurn()).append("\n\n");
+            frame.append("Waiting player: ").append(match.getCurrentPlayer()).append("\n\n");
             if(match.isCheck()){
-                System.out.println(ANSI_PURPLE+"Check!"+ANSI_RESET);
+                frame.append(ANSI_PURPLE).append("Check!").append(ANSI_RESET).append('\n');
             }
+        }else if(match.isStalemate()){
+            appendDraw("STALEMATE!");
+        }else if(match.isInsufficientMaterial()){
+            appendDraw("INSUFFICIENT MATERIAL!");
+        }else if(match.isThreefoldRepetition()){
+            appendDraw("THREEFOLD REPETITION!");
+        }else if(match.isTablebaseDraw()){
+            appendDraw("TABLEBASE DRAW!");
         }else{
-            System.out.println(ANSI_RED+"CHECKMATE!"+ANSI_RESET);
-            System.out.println("WINNER: " + match.getCurrentPlayer());
+            frame.append(ANSI_RED).append("CHECKMATE!").append(ANSI_RESET).append('\n');
+            frame.append("WINNER: ").append(match.getWinner()).append('\n');
         }
+        writeFrame();
+    }
+
+    private static void appendDraw(String reason){
+        frame.append(ANSI_RED).append(reason).append(ANSI_RESET).append('\n');
+        frame.append("DRAW\n");
     }
 
     public static ChessPosition readChessPosition(Scanner sc){
@@ -90,24 +150,23 @@ public class UI {
             String s = sc.nextLine();
             char column = s.charAt(0);
             int row = Integer.parseInt(s.substring(1));
-            return new ChessPosition(column, row);
+            return ChessPosition.of(column, row);
         }catch (RuntimeException e){
             throw new InputMismatchException("Error reading ChessPosition. Valid values are from a1 to h8");
         }
     }
 
-    private static void printCapturedPieces(List <ChessPiece> captured){
+    private static void appendCapturedPieces(List <ChessPiece> captured){
         List<ChessPiece> white;
         List<ChessPiece> black;
         white = captured.stream().filter(x -> x.getColor()==Color.WHITE).collect(Collectors.toList());
         black = captured.stream().filter(x -> x.getColor()==Color.BLACK).collect(Collectors.toList());
-        System.out.println("Captured pieces:");
-        System.out.println();
-        System.out.print(ANSI_WHITE + "white: ");
-        System.out.println(Arrays.toString(white.toArray()));
-        System.out.print(ANSI_RESET);
-        System.out.print(ANSI_YELLOW + "Black: ");
-        System.out.println(Arrays.toString(black.toArray()));
-        System.out.println(ANSI_RESET);
+        frame.append("Captured pieces:\n\n");
+        frame.append(ANSI_WHITE + "white: ");
+        frame.append(Arrays.toString(white.toArray())).append('\n');
+        frame.append(ANSI_RESET);
+        frame.append(ANSI_YELLOW + "Black: ");
+        frame.append(Arrays.toString(black.toArray())).append('\n');
+        frame.append(ANSI_RESET).append('\n');
     }
 }
@@ -0,0 +1,419 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.Technique;
+import engine.TranspositionTable;
+import metrics.Metrics;
+import nnue.Network;
+import nnue.NnueException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+//Universal Chess Interface: commands are read on the calling thread while searches run on their own,
+//so stop and isready are answered during a search
+public class Uci {
+    private static final int MAX_HASH = 1024;
+    private static final int MAX_THREADS = 64;
+    private static final int MAX_MULTI_PV = 64;
+
+    private final PrintStream out;
+    private int hashMegabytes = 16;
+    private int threads = 1;
+    private int multiPv = 1;
+    private boolean chess960;
+    private final EnumSet<Technique> disabled = EnumSet.noneOf(Technique.class);
+    private Network network;
+    //built at the first go, so the options a GUI sends at startup do not allocate a table only to replace it
+    private TranspositionTable table;
+    private Search[] searches;
+
+    private String fen;
+    private final List<String> moves = new ArrayList<>();
+    //position of the running search, for writing its moves in the notation of the GUI
+    private ChessMatch root;
+
+    private Thread searchThread;
+    private SearchLimits ponderLimits;
+    //go infinite and go ponder keep the best move until stop or ponderhit
+    private boolean waiting;
+    private boolean stopRequested;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    public void run(BufferedReader in){
+        try {
+            String line;
+            while((line = in.readLine()) != null){
+                if(!handle(line.trim())){
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stopSearch();
+        }
+    }
+
+    //false on quit
+    private boolean handle(String line){
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                send("id name ChessGame");
+                send("id author Matheus-C");
+                send("option name Hash type spin default 16 min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("option name MultiPV type spin default 1 min 1 max " + MAX_MULTI_PV);
+                send("option name EvalFile type string default <empty>");
+                send("option name UCI_Chess960 type check default false");
+                for(Technique technique: Technique.values()){
+                    send("option name " + technique.getOptionName() + " type check default true");
+                }
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(tokens);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                if(table != null){
+                    table.clear();
+                }
+                break;
+            case "position":
+                stopSearch();
+                position(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "ponderhit":
+                ponderHit();
+                break;
+            case "metrics":
+                //not part of the protocol, for looking at a running engine; empty unless started with -Dmetrics=true
+                for(String metric: Metrics.snapshot()){
+                    send("info string " + metric);
+                }
+                break;
+            case "quit":
+                return false;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private void setOption(String[] tokens){
+        int name = indexOf(tokens, "name");
+        int value = indexOf(tokens, "value");
+        if(name < 0 || value < 0 || value + 1 >= tokens.length){
+            return;
+        }
+        String option = String.join(" ", Arrays.copyOfRange(tokens, name + 1, value));
+        try {
+            if(option.equalsIgnoreCase("Hash")){
+                hashMegabytes = Math.max(1, Math.min(Integer.parseInt(tokens[value + 1]), MAX_HASH));
+                table = null;
+                searches = null;
+            }else if(option.equalsIgnoreCase("Threads")){
+                threads = Math.max(1, Math.min(Integer.parseInt(tokens[value + 1]), MAX_THREADS));
+                searches = null;
+            }else if(option.equalsIgnoreCase("MultiPV")){
+                multiPv = Math.max(1, Math.min(Integer.parseInt(tokens[value + 1]), MAX_MULTI_PV));
+                searches = null;
+            }else if(option.equalsIgnoreCase("UCI_Chess960")){
+                chess960 = tokens[value + 1].equalsIgnoreCase("true");
+            }else if(isTechnique(option)){
+                if(tokens[value + 1].equalsIgnoreCase("true")){
+                    disabled.remove(Technique.parse(option));
+                }else{
+                    disabled.add(Technique.parse(option));
+                }
+                searches = null;
+            }else if(option.equalsIgnoreCase("EvalFile")){
+                String file = String.join(" ", Arrays.copyOfRange(tokens, value + 1, tokens.length));
+                network = file.equals("<empty>") ? null : Network.load(Paths.get(file));
+                searches = null;
+                send("info string " + (network == null ? "Hand written evaluation" : "Network " + file + " with " + network.getHidden() + " hidden neurons"));
+            }
+        } catch (NumberFormatException e) {
+            send("info string Invalid value for " + option);
+        } catch (NnueException e) {
+            send("info string " + e.getMessage());
+        }
+    }
+
+    private static boolean isTechnique(String option){
+        for(Technique technique: Technique.values()){
+            if(technique.getOptionName().equalsIgnoreCase(option)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Search[] newSearches(){
+        if(table == null){
+            table = new TranspositionTable(hashMegabytes);
+        }
+        Search[] list = new Search[threads];
+        for(int i=0; i<threads; i++){
+            list[i] = new Search(table);
+            list[i].setNetwork(network);
+            for(Technique technique: disabled){
+                list[i].setEnabled(technique, false);
+            }
+        }
+        //helpers fill the table for the best line only
+        list[0].setMultiPv(multiPv);
+        list[0].setListener(this::info);
+        return list;
+    }
+
+    private void position(String[] tokens){
+        int movesIndex = indexOf(tokens, "moves");
+        int end = movesIndex < 0 ? tokens.length : movesIndex;
+        String newFen = null;
+        if(tokens.length > 1 && tokens[1].equals("fen")){
+            newFen = String.join(" ", Arrays.copyOfRange(tokens, 2, end));
+        }else if(tokens.length < 2 || !tokens[1].equals("startpos")){
+            send("info string Invalid position command");
+            return;
+        }
+        List<String> newMoves = new ArrayList<>();
+        if(movesIndex >= 0){
+            newMoves.addAll(Arrays.asList(tokens).subList(movesIndex + 1, tokens.length));
+        }
+        try {
+            newMatch(newFen, newMoves);
+        } catch (ChessException | IllegalArgumentException e) {
+            send("info string Invalid position: " + e.getMessage());
+            return;
+        }
+        fen = newFen;
+        moves.clear();
+        moves.addAll(newMoves);
+    }
+
+    //every search thread plays moves on its own copy of the position.
+    //in Chess960 castling is the king taking its own rook, otherwise the king moving two squares
+    private ChessMatch newMatch(String fen, List<String> moves){
+        ChessMatch match = fen == null ? new ChessMatch() : new ChessMatch(fen);
+        match.setChess960(chess960);
+        for(String move: moves){
+            match.performChessMove(Move.parse(move));
+        }
+        return match;
+    }
+
+    private void go(String[] tokens){
+        int depth = 0;
+        long movetime = 0;
+        long nodes = 0;
+        long wtime = -1;
+        long btime = -1;
+        long winc = 0;
+        long binc = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        try {
+            for(int i=1; i<tokens.length; i++){
+                switch (tokens[i]) {
+                    case "depth": depth = Integer.parseInt(tokens[++i]); break;
+                    case "movetime": movetime = Long.parseLong(tokens[++i]); break;
+                    case "nodes": nodes = Long.parseLong(tokens[++i]); break;
+                    case "wtime": wtime = Long.parseLong(tokens[++i]); break;
+                    case "btime": btime = Long.parseLong(tokens[++i]); break;
+                    case "winc": winc = Long.parseLong(tokens[++i]); break;
+                    case "binc": binc = Long.parseLong(tokens[++i]); break;
+                    case "movestogo": movesToGo = Integer.parseInt(tokens[++i]); break;
+                    case "infinite": infinite = true; break;
+                    case "ponder": ponder = true; break;
+                    default: break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            send("info string Invalid go command");
+            return;
+        }
+        ChessMatch[] matches = new ChessMatch[threads];
+        for(int i=0; i<threads; i++){
+            matches[i] = newMatch(fen, moves);
+        }
+        root = newMatch(fen, moves);
+        boolean white = matches[0].getCurrentPlayer() == Color.WHITE;
+        long remaining = white ? wtime : btime;
+        long time = movetime;
+        if(time == 0 && remaining >= 0){
+            time = SearchLimits.clock(remaining, white ? winc : binc, movesToGo).getTimeMillis();
+        }
+        SearchLimits limits = new SearchLimits(depth, time, nodes);
+        //a ponder search runs without a clock until ponderhit tells it the opponent played the expected move
+        ponderLimits = ponder ? limits : null;
+        SearchLimits searchLimits = ponder ? new SearchLimits(depth, 0, nodes) : limits;
+        synchronized (this){
+            waiting = infinite || ponder;
+            stopRequested = false;
+        }
+        if(searches == null){
+            searches = newSearches();
+        }
+        //entries of earlier moves, and of the ponder search after a ponderhit, stay in the table
+        table.newSearch();
+        Search[] running = searches;
+        for(Search search: running){
+            search.resetNodes();
+        }
+        searchThread = new Thread(() -> think(running, matches, searchLimits), "uci-search");
+        searchThread.start();
+    }
+
+    //the first search reports and decides, the others fill the shared hash table
+    private void think(Search[] running, ChessMatch[] matches, SearchLimits limits){
+        List<Thread> helpers = new ArrayList<>();
+        for(int i=1; i<running.length; i++){
+            Search helper = running[i];
+            ChessMatch match = matches[i];
+            Thread thread = new Thread(() -> helper.search(match, limits), "uci-helper-" + i);
+            helpers.add(thread);
+            thread.start();
+        }
+        SearchResult result = running[0].search(matches[0], limits);
+        for(int i=1; i<running.length; i++){
+            running[i].stop();
+        }
+        try {
+            for(Thread helper: helpers){
+                helper.join();
+            }
+            synchronized (this){
+                while(waiting && !stopRequested){
+                    wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int best = result.getBestMove();
+        int[] pv = result.getPrincipalVariation();
+        //the expected reply, which the GUI may send back with go ponder
+        String ponder = "";
+        if(pv.length > 1 && pv[0] == best){
+            root.play(best);
+            ponder = " ponder " + root.toUci(pv[1]);
+            root.takeBack();
+        }
+        send("bestmove " + (best == Move.NONE ? "0000" : root.toUci(best)) + ponder);
+    }
+
+    private void info(SearchResult result){
+        long nodes = 0;
+        for(Search search: searches){
+            nodes += search.getNodes();
+        }
+        StringBuilder sb = new StringBuilder("info depth ").append(result.getDepth());
+        if(multiPv > 1){
+            sb.append(" multipv ").append(result.getLine());
+        }
+        sb.append(result.isMate() ? " score mate " + result.getMateIn() : " score cp " + result.getScore());
+        sb.append(" nodes ").append(nodes);
+        sb.append(" nps ").append(nodes * 1000 / Math.max(1, result.getTimeMillis()));
+        sb.append(" time ").append(result.getTimeMillis());
+        sb.append(" pv");
+        int[] pv = result.getPrincipalVariation();
+        for(int move: pv){
+            sb.append(' ').append(root.toUci(move));
+            root.play(move);
+        }
+        root.takeBackTo(root.getPly() - pv.length);
+        send(sb.toString());
+    }
+
+    private void ponderHit(){
+        if(searchThread == null || ponderLimits == null){
+            return;
+        }
+        if(ponderLimits.getTimeMillis() > 0){
+            searches[0].startClock(ponderLimits.getTimeMillis());
+        }
+        ponderLimits = null;
+        synchronized (this){
+            waiting = false;
+            notifyAll();
+        }
+    }
+
+    //returns once the best move of the running search has been sent
+    private void stopSearch(){
+        if(searchThread == null){
+            return;
+        }
+        synchronized (this){
+            stopRequested = true;
+            notifyAll();
+        }
+        try {
+            //the search clears its stop flag when it starts, so keep asking until it is done
+            while(searchThread.isAlive()){
+                for(Search search: searches){
+                    search.stop();
+                }
+                searchThread.join(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+        ponderLimits = null;
+    }
+
+    private static int indexOf(String[] tokens, String token){
+        for(int i=0; i<tokens.length; i++){
+            if(tokens[i].equals(token)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void send(String line){
+        synchronized (out){
+            out.println(line);
+            out.flush();
+        }
+    }
+}
@@ -44,7 +44,7 @@ public class Board {
         piece.position = pos;
     }
 
-    private boolean positionExists(int row, int column){
+    public boolean positionExists(int row, int column){
         return row>=0 && row<rows && column>=0 && column<columns;
     }
 
@@ -59,6 +59,10 @@ public class Board {
         return piece(pos)!= null;
     }
 
+    public boolean thereIsAPiece(int row, int column){
+        return piece(row, column) != null;
+    }
+
     public Piece removePiece(Position pos){
         if(!positionExists(pos)){
             throw new BoardException("Position not on the board");
@@ -14,6 +14,19 @@ public abstract class Piece {
 
     public abstract boolean[][] possibleMoves();
 
+    //squares this piece could have come from with a quiet move; pieces that move symmetrically reuse possibleMoves
+    public boolean[][] possibleUnmoves(){
+        boolean[][] mat = possibleMoves();
+        for(int i=0; i<mat.length; i++){
+            for(int j=0; j<mat[i].length; j++){
+                if(mat[i][j] && board.piece(i, j) != null){
+                    mat[i][j] = false;
+                }
+            }
+        }
+        return mat;
+    }
+
     public boolean possibleMove(Position pos){
         return possibleMoves()[pos.getRow()][pos.getColumn()];
     }
@@ -1,20 +1,29 @@
 package boardgame;
 
+//immutable, so the squares of boards up to 8x8 are shared instances from of()
 public class Position {
-    private int row;
-    private int column;
+    private static final int CACHED = 8;
+    private static final Position[] SQUARES = new Position[CACHED * CACHED];
 
-    public Position() {
+    static {
+        for(int i=0; i<SQUARES.length; i++){
+            SQUARES[i] = new Position(i / CACHED, i % CACHED);
+        }
     }
 
+    private final int row;
+    private final int column;
+
     public Position(int row, int column) {
         this.row = row;
         this.column = column;
     }
 
-    public void setvalues(int row, int column) {
-        this.row = row;
-        this.column = column;
+    public static Position of(int row, int column){
+        if(row >= 0 && row < CACHED && column >= 0 && column < CACHED){
+            return SQUARES[row * CACHED + column];
+        }
+        return new Position(row, column);
     }
 
     public int getRow() {
@@ -25,14 +34,6 @@ public class Position {
         return column;
     }
 
-    public void setRow(int row) {
-        this.row = row;
-    }
-
-    public void setColumn(int column) {
-        this.column = column;
-    }
-
     @Override
     public String toString(){
         return row + ", " + column;
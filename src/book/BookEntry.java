@@ -0,0 +1,34 @@
+package book;
+
+import chess.Move;
+
+public class BookEntry {
+    private final int move;
+    private final int weight;
+    private final int count;
+
+    public BookEntry(int move, int weight, int count) {
+        this.move = move;
+        this.weight = weight;
+        this.count = count;
+    }
+
+    //chess.Move encoding
+    public int getMove() {
+        return move;
+    }
+
+    //2 points per win and 1 per draw for the side that played the move, scaled to 16 bits
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString(){
+        return Move.toString(move) + " " + weight + "/" + count;
+    }
+}
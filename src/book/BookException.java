@@ -0,0 +1,11 @@
+package book;
+
+public class BookException extends RuntimeException{
+    public BookException(String message) {
+        super(message);
+    }
+
+    public BookException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
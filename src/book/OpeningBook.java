@@ -0,0 +1,130 @@
+package book;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//book file written by OpeningBookBuilder: 16 byte records (key, move, weight, count) sorted by key and move
+public class OpeningBook implements AutoCloseable {
+    static final int RECORD_SIZE = 16;
+    //mappings are limited to 2 GiB, so large books are mapped in record-aligned segments
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long records;
+
+    public OpeningBook(Path path) {
+        this.path = path;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            if(size % RECORD_SIZE != 0){
+                channel.close();
+                throw new BookException("Not an opening book file: " + path);
+            }
+            records = size / RECORD_SIZE;
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for(int i=0; i<segments.length; i++){
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        } catch (IOException e) {
+            throw new BookException("Error opening book " + path, e);
+        }
+    }
+
+    public long size(){
+        return records;
+    }
+
+    public List<BookEntry> entries(long key){
+        List<BookEntry> list = new ArrayList<>();
+        for(long r=lowerBound(key); r<records && keyAt(r) == key; r++){
+            MappedByteBuffer segment = segment(r);
+            int offset = offset(r);
+            list.add(new BookEntry(segment.getShort(offset + 8) & 0xFFFF, segment.getShort(offset + 10) & 0xFFFF, segment.getInt(offset + 12)));
+        }
+        return list;
+    }
+
+    public List<BookEntry> entries(ChessMatch match){
+        return entries(match.getKey());
+    }
+
+    //weighted by result, or by popularity when every move has weight 0; Move.NONE when out of book
+    public int pickMove(ChessMatch match, Random random){
+        List<BookEntry> list = entries(match);
+        long total = 0;
+        long totalCount = 0;
+        for(BookEntry e: list){
+            total += e.getWeight();
+            totalCount += e.getCount();
+        }
+        boolean byCount = total == 0;
+        long pick = (long) (random.nextDouble() * (byCount ? totalCount : total));
+        for(BookEntry e: list){
+            pick -= byCount ? e.getCount() : e.getWeight();
+            if(pick < 0){
+                return isLegal(match, e.getMove()) ? e.getMove() : Move.NONE;
+            }
+        }
+        return Move.NONE;
+    }
+
+    //guards against key collisions
+    private static boolean isLegal(ChessMatch match, int move){
+        int[] moves = new int[ChessMatch.MAX_MOVES];
+        int n = match.generateLegalMoves(moves);
+        for(int i=0; i<n; i++){
+            if(moves[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long lowerBound(long key){
+        long low = 0;
+        long high = records;
+        while(low < high){
+            long mid = (low + high) >>> 1;
+            if(keyAt(mid) < key){
+                low = mid + 1;
+            }else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long record){
+        return segment(record).getLong(offset(record));
+    }
+
+    private MappedByteBuffer segment(long record){
+        return segments[(int) (record * RECORD_SIZE / SEGMENT_SIZE)];
+    }
+
+    private static int offset(long record){
+        return (int) (record * RECORD_SIZE % SEGMENT_SIZE);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new BookException("Error closing book " + path, e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package book;
+
+import chess.ChessException;
+import chess.ChessMatch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//collects (key, move, result) samples from PGN games, sorts them in runs on disk and merges the runs into a book file
+public class OpeningBookBuilder {
+    public static final int DEFAULT_MAX_PLY = 30;
+    private static final int RUN_ENTRIES = 1 << 22;
+
+    private final int maxPly;
+    private final Path tempDirectory;
+    private final long[] keys = new long[RUN_ENTRIES];
+    private final long[] values = new long[RUN_ENTRIES];
+    private int size;
+    private final List<Path> runs = new ArrayList<>();
+    private long games;
+    private long rejectedGames;
+
+    public OpeningBookBuilder(int maxPly, Path tempDirectory) {
+        this.maxPly = maxPly;
+        this.tempDirectory = tempDirectory;
+    }
+
+    public void addGames(Path pgn){
+        try(PgnReader reader = new PgnReader(Files.newBufferedReader(pgn, StandardCharsets.ISO_8859_1))){
+            PgnGame game;
+            while((game = reader.next()) != null){
+                addGame(game);
+            }
+        } catch (IOException e) {
+            throw new BookException("Error reading " + pgn, e);
+        }
+    }
+
+    //games with an illegal move keep the positions before it
+    public void addGame(PgnGame game){
+        String fen = game.getTags().get("FEN");
+        int whitePoints = game.getResult().equals("1-0") ? 2 : game.getResult().equals("1/2-1/2") ? 1 : 0;
+        int blackPoints = game.getResult().equals("0-1") ? 2 : game.getResult().equals("1/2-1/2") ? 1 : 0;
+        try {
+            ChessMatch match = fen == null ? new ChessMatch() : new ChessMatch(fen);
+            boolean whiteToMove = fen == null || fen.split("\\s+")[1].equals("w");
+            List<String> moves = game.getMoves();
+            for(int ply=0; ply<maxPly && ply<moves.size() && !match.isGameOver(); ply++){
+                int move = match.parseSan(moves.get(ply));
+                add(match.getKey(), move, whiteToMove ? whitePoints : blackPoints);
+                match.performChessMove(move);
+                whiteToMove = !whiteToMove;
+            }
+        } catch (ChessException e) {
+            rejectedGames++;
+        }
+        games++;
+    }
+
+    private void add(long key, int move, int points){
+        if(size == RUN_ENTRIES){
+            spill();
+        }
+        keys[size] = key;
+        values[size] = ((long) move << 8) | points;
+        size++;
+    }
+
+    //sorts the buffered samples and writes them aggregated by (key, move)
+    private void spill(){
+        sort(0, size - 1);
+        try {
+            Path run = Files.createTempFile(tempDirectory, "book", ".run");
+            runs.add(run);
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))){
+                int i = 0;
+                while(i < size){
+                    long key = keys[i];
+                    int move = (int) (values[i] >>> 8);
+                    long points = 0;
+                    int count = 0;
+                    while(i < size && keys[i] == key && (int) (values[i] >>> 8) == move){
+                        points += values[i] & 0xFF;
+                        count++;
+                        i++;
+                    }
+                    out.writeLong(key);
+                    out.writeInt(move);
+                    out.writeLong(points);
+                    out.writeInt(count);
+                }
+            }
+        } catch (IOException e) {
+            throw new BookException("Error writing book run", e);
+        }
+        size = 0;
+    }
+
+    private void sort(int low, int high){
+        while(low < high){
+            if(high - low < 16){
+                for(int i=low+1; i<=high; i++){
+                    for(int j=i; j>low && compare(j - 1, j) > 0; j--){
+                        swap(j - 1, j);
+                    }
+                }
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            long pivotValue = values[mid];
+            int i = low;
+            int j = high;
+            while(i <= j){
+                while(compare(keys[i], values[i], pivotKey, pivotValue) < 0) i++;
+                while(compare(keys[j], values[j], pivotKey, pivotValue) > 0) j--;
+                if(i <= j){
+                    swap(i++, j--);
+                }
+            }
+            //recurse into the smaller half to bound the stack depth
+            if(j - low < high - i){
+                sort(low, j);
+                low = i;
+            }else{
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private int compare(int a, int b){
+        return compare(keys[a], values[a], keys[b], values[b]);
+    }
+
+    private static int compare(long keyA, long valueA, long keyB, long valueB){
+        int cmp = Long.compare(keyA, keyB);
+        return cmp != 0 ? cmp : Long.compare(valueA >>> 8, valueB >>> 8);
+    }
+
+    private void swap(int a, int b){
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    //merges every run into the final book, scaling each position's weights to 16 bits
+    public void write(Path output){
+        if(size > 0){
+            spill();
+        }
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> a.key != b.key ? Long.compare(a.key, b.key) : Integer.compare(a.move, b.move));
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))){
+            for(Path run: runs){
+                RunReader reader = new RunReader(run);
+                if(reader.advance()){
+                    queue.add(reader);
+                }
+            }
+            List<long[]> position = new ArrayList<>();
+            long currentKey = 0;
+            while(!queue.isEmpty()){
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                int move = reader.move;
+                long points = reader.points;
+                long count = reader.count;
+                if(reader.advance()){
+                    queue.add(reader);
+                }else{
+                    reader.close();
+                }
+                while(!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move){
+                    RunReader same = queue.poll();
+                    points += same.points;
+                    count += same.count;
+                    if(same.advance()){
+                        queue.add(same);
+                    }else{
+                        same.close();
+                    }
+                }
+                if(!position.isEmpty() && key != currentKey){
+                    writePosition(out, currentKey, position);
+                }
+                currentKey = key;
+                position.add(new long[]{move, points, count});
+            }
+            if(!position.isEmpty()){
+                writePosition(out, currentKey, position);
+            }
+        } catch (IOException e) {
+            throw new BookException("Error writing book " + output, e);
+        } finally {
+            for(Path run: runs){
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException ignored) {
+                }
+            }
+            runs.clear();
+        }
+        try {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new BookException("Error writing book " + output, e);
+        }
+    }
+
+    private static void writePosition(DataOutputStream out, long key, List<long[]> moves) throws IOException {
+        long max = 0;
+        for(long[] m: moves){
+            max = Math.max(max, m[1]);
+        }
+        double scale = max > 0xFFFF ? (double) 0xFFFF / max : 1;
+        for(long[] m: moves){
+            out.writeLong(key);
+            out.writeShort((int) m[0]);
+            out.writeShort((int) Math.round(m[1] * scale));
+            out.writeInt((int) Math.min(m[2], Integer.MAX_VALUE));
+        }
+        moves.clear();
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getRejectedGames() {
+        return rejectedGames;
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: OpeningBookBuilder <book> <pgn>... (-Dbook.maxPly=" + DEFAULT_MAX_PLY + ")");
+            return;
+        }
+        Path output = Paths.get(args[0]).toAbsolutePath();
+        OpeningBookBuilder builder = new OpeningBookBuilder(Integer.getInteger("book.maxPly", DEFAULT_MAX_PLY), output.getParent());
+        for(int i=1; i<args.length; i++){
+            builder.addGames(Paths.get(args[i]));
+        }
+        builder.write(output);
+        System.out.println(builder.getGames() + " games, " + builder.getRejectedGames() + " with illegal moves");
+    }
+
+    private static final class RunReader {
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private long points;
+        private int count;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+                move = in.readInt();
+                points = in.readLong();
+                count = in.readInt();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
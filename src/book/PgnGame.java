@@ -0,0 +1,30 @@
+package book;
+
+import java.util.List;
+import java.util.Map;
+
+public class PgnGame {
+    private final Map<String, String> tags;
+    private final List<String> moves;
+    private final String result;
+
+    public PgnGame(Map<String, String> tags, List<String> moves, String result) {
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    //moves in standard algebraic notation
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    //1-0, 0-1, 1/2-1/2 or *
+    public String getResult() {
+        return result;
+    }
+}
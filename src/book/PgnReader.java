@@ -0,0 +1,123 @@
+package book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//reads games one at a time, skipping comments, variations and annotation glyphs
+public class PgnReader implements AutoCloseable {
+    private final BufferedReader reader;
+    private String pending;
+
+    public PgnReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    //null at the end of the input
+    public PgnGame next(){
+        try {
+            Map<String, String> tags = new LinkedHashMap<>();
+            StringBuilder movetext = new StringBuilder();
+            String line = readLine();
+            while(line != null && (line.isEmpty() || line.startsWith("%"))){
+                line = readLine();
+            }
+            if(line == null){
+                return null;
+            }
+            while(line != null && line.startsWith("[")){
+                int space = line.indexOf(' ');
+                int firstQuote = line.indexOf('"');
+                int lastQuote = line.lastIndexOf('"');
+                if(space > 1 && firstQuote > space && lastQuote > firstQuote){
+                    tags.put(line.substring(1, space), line.substring(firstQuote + 1, lastQuote));
+                }
+                line = readLine();
+            }
+            while(line != null && !line.startsWith("[")){
+                if(!line.startsWith("%")){
+                    movetext.append(line).append('\n');
+                }
+                line = readLine();
+            }
+            pending = line;
+            return parseMovetext(tags, movetext);
+        } catch (IOException e) {
+            throw new BookException("Error reading PGN", e);
+        }
+    }
+
+    private String readLine() throws IOException {
+        if(pending != null){
+            String line = pending;
+            pending = null;
+            return line;
+        }
+        String line = reader.readLine();
+        return line == null ? null : line.trim();
+    }
+
+    private static PgnGame parseMovetext(Map<String, String> tags, StringBuilder movetext){
+        List<String> moves = new ArrayList<>();
+        String result = tags.getOrDefault("Result", "*");
+        int depth = 0;
+        StringBuilder token = new StringBuilder();
+        for(int i=0; i<=movetext.length(); i++){
+            char c = i < movetext.length() ? movetext.charAt(i) : ' ';
+            if(c == '{'){
+                int end = movetext.indexOf("}", i);
+                i = end < 0 ? movetext.length() : end;
+                c = ' ';
+            }else if(c == ';'){
+                int end = movetext.indexOf("\n", i);
+                i = end < 0 ? movetext.length() : end;
+                c = ' ';
+            }
+            if(c == '('){
+                depth++;
+                continue;
+            }
+            if(c == ')'){
+                depth--;
+                continue;
+            }
+            if(depth > 0){
+                continue;
+            }
+            if(!Character.isWhitespace(c)){
+                token.append(c);
+                continue;
+            }
+            if(token.length() == 0){
+                continue;
+            }
+            String t = token.toString();
+            token.setLength(0);
+            int dot = t.lastIndexOf('.');
+            if(dot >= 0){
+                t = t.substring(dot + 1);
+            }
+            if(t.isEmpty() || t.startsWith("$")){
+                continue;
+            }
+            if(t.equals("1-0") || t.equals("0-1") || t.equals("1/2-1/2") || t.equals("*")){
+                result = t;
+                continue;
+            }
+            moves.add(t);
+        }
+        return new PgnGame(tags, moves, result);
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new BookException("Error closing PGN", e);
+        }
+    }
+}
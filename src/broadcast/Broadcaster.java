@@ -0,0 +1,111 @@
+package broadcast;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.MatchListener;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+//sends the moves of one match to its spectators. The match thread only encodes each event once and queues it,
+//a dispatcher thread copies the frames to the subscriptions. A spectator whose queue is full gets the latest
+//snapshot instead of the frames it missed, and is dropped after falling behind too many times in a row
+public class Broadcaster implements MatchListener, AutoCloseable {
+    private static final Update END = new Update(null, null);
+
+    private final int capacity;
+    private final int maxLagging;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Update> updates = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    //the position after the last dispatched frame, for new spectators
+    private volatile byte[] snapshot;
+
+    public Broadcaster(ChessMatch match, int capacity, int maxLagging) {
+        if(capacity < 2){
+            throw new IllegalArgumentException("A subscription must hold at least 2 frames");
+        }
+        this.capacity = capacity;
+        this.maxLagging = maxLagging;
+        snapshot = Frames.encodeSnapshot(match);
+        dispatcher = new Thread(this::dispatch, "broadcast-" + match.getId());
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        match.addMatchListener(this);
+    }
+
+    //starts with the current position
+    public Subscription subscribe(){
+        Subscription subscription = new Subscription(this, capacity);
+        synchronized (subscription){
+            subscriptions.add(subscription);
+            subscription.offer(snapshot);
+        }
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription){
+        if(subscriptions.remove(subscription)){
+            subscription.end();
+        }
+    }
+
+    public int getSubscriberCount(){
+        return subscriptions.size();
+    }
+
+    @Override
+    public void movePerformed(ChessMatch match, int move, ChessPiece captured) {
+        updates.offer(new Update(Frames.encodeMove(Frames.MOVE, match, move, captured), Frames.encodeSnapshot(match)));
+    }
+
+    @Override
+    public void promotionChanged(ChessMatch match, int move) {
+        updates.offer(new Update(Frames.encodeMove(Frames.PROMOTION, match, move, null), Frames.encodeSnapshot(match)));
+    }
+
+    private void dispatch(){
+        try {
+            Update update;
+            while((update = updates.take()) != END){
+                snapshot = update.snapshot;
+                for(Subscription subscription: subscriptions){
+                    //synchronized with skipTo, so a spectator never gets a frame older than its snapshot
+                    synchronized (subscription){
+                        if(!subscription.offer(update.frame) && subscription.skipTo(update.snapshot) > maxLagging){
+                            unsubscribe(subscription);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for(Subscription subscription: subscriptions){
+            unsubscribe(subscription);
+        }
+    }
+
+    //sends the frames already queued, then closes every subscription
+    @Override
+    public void close() {
+        updates.offer(END);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Update {
+        private final byte[] frame;
+        private final byte[] snapshot;
+
+        Update(byte[] frame, byte[] snapshot) {
+            this.frame = frame;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package broadcast;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//binary frames sent to spectators, big-endian:
+//MOVE and PROMOTION: kind, game id (8 bytes), ply (2), move (2), captured piece (1), flags (1)
+//SNAPSHOT: kind, game id (8 bytes), ply (2), FEN length (2), FEN in ASCII.
+//the ply counts the moves played from the first position, a snapshot replaces every frame of a ply up to its own
+public final class Frames {
+    public static final byte MOVE = 1;
+    public static final byte PROMOTION = 2;
+    public static final byte SNAPSHOT = 3;
+
+    public static final int CHECK = 1;
+    public static final int CHECKMATE = 2;
+    public static final int STALEMATE = 4;
+    //insufficient material, repetition or a drawn tablebase position
+    public static final int DRAW = 8;
+
+    //captured pieces are numbered from 1, 0 is none
+    private static final String PIECES = "PNBRQK";
+    private static final int MOVE_SIZE = 1 + 8 + 2 + 2 + 1 + 1;
+
+    private Frames() {
+    }
+
+    static byte[] encodeMove(byte kind, ChessMatch match, int move, ChessPiece captured){
+        int flags = (match.isCheck() ? CHECK : 0) | (!match.isNotCheckmate() ? CHECKMATE : 0) | (match.isStalemate() ? STALEMATE : 0)
+                | (match.isInsufficientMaterial() || match.isThreefoldRepetition() || match.isTablebaseDraw() ? DRAW : 0);
+        int piece = captured == null ? 0 : PIECES.indexOf(captured.toString().charAt(0)) + 1;
+        return ByteBuffer.allocate(MOVE_SIZE).put(kind).putLong(match.getId()).putShort((short) match.getPly())
+                .putShort((short) move).put((byte) piece).put((byte) flags).array();
+    }
+
+    static byte[] encodeSnapshot(ChessMatch match){
+        byte[] fen = match.getFen().getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(1 + 8 + 2 + 2 + fen.length).put(SNAPSHOT).putLong(match.getId()).putShort((short) match.getPly())
+                .putShort((short) fen.length).put(fen).array();
+    }
+
+    public static byte kind(byte[] frame){
+        return frame[0];
+    }
+
+    public static long gameId(byte[] frame){
+        return ByteBuffer.wrap(frame).getLong(1);
+    }
+
+    public static int ply(byte[] frame){
+        return ByteBuffer.wrap(frame).getShort(9) & 0xFFFF;
+    }
+
+    //in the encoding of chess.Move
+    public static int move(byte[] frame){
+        return ByteBuffer.wrap(frame).getShort(11) & 0xFFFF;
+    }
+
+    //P, N, B, R, Q or K, and a space when nothing was taken
+    public static char captured(byte[] frame){
+        return frame[13] == 0 ? ' ' : PIECES.charAt(frame[13] - 1);
+    }
+
+    public static int flags(byte[] frame){
+        return frame[14];
+    }
+
+    public static String fen(byte[] frame){
+        int length = ByteBuffer.wrap(frame).getShort(11) & 0xFFFF;
+        return new String(frame, 13, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,77 @@
+package broadcast;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//frames waiting for one spectator; only the broadcaster adds to it, only the spectator takes from it
+public class Subscription implements AutoCloseable {
+    private static final byte[] CLOSED = new byte[0];
+
+    private final Broadcaster broadcaster;
+    private final BlockingQueue<byte[]> frames;
+    private volatile boolean closed;
+    private long skipped;
+    //overflows since the spectator last took a frame
+    private volatile int lagging;
+
+    Subscription(Broadcaster broadcaster, int capacity) {
+        this.broadcaster = broadcaster;
+        this.frames = new ArrayBlockingQueue<>(capacity);
+    }
+
+    //the next frame, or null once the subscription is closed
+    public byte[] take() throws InterruptedException {
+        if(closed && frames.isEmpty()){
+            return null;
+        }
+        byte[] frame = frames.take();
+        lagging = 0;
+        return frame == CLOSED ? null : frame;
+    }
+
+    //null when there is no frame yet or the subscription is closed
+    public byte[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] frame = frames.poll(timeout, unit);
+        if(frame != null){
+            lagging = 0;
+        }
+        return frame == CLOSED ? null : frame;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    //frames that were dropped because the spectator was behind
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        broadcaster.unsubscribe(this);
+    }
+
+    //false when the queue is full
+    boolean offer(byte[] frame){
+        return frames.offer(frame);
+    }
+
+    //drops the queued frames for the snapshot they lead to; returns how many times in a row this happened
+    synchronized int skipTo(byte[] snapshot){
+        skipped += frames.size() + 1;
+        frames.clear();
+        frames.offer(snapshot);
+        return ++lagging;
+    }
+
+    //frames still queued are kept unless there is no room left for the end
+    void end(){
+        closed = true;
+        if(!frames.offer(CLOSED)){
+            frames.clear();
+            frames.offer(CLOSED);
+        }
+    }
+}
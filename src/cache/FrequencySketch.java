@@ -0,0 +1,63 @@
+package cache;
+
+//how often keys were asked for lately, in 4 bit counters: a count-min sketch with four counters per key
+//and 16 counters per long. when enough increments have been added every counter is halved, so popularity fades
+//and a position that was popular an hour ago does not hold its place forever. not thread safe
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        table = new long[size];
+        mask = size - 1;
+        sampleSize = 10 * size;
+    }
+
+    //at most 15
+    int frequency(long hash){
+        int min = 15;
+        for(int i=0; i<SEEDS.length; i++){
+            min = Math.min(min, (int) (table[index(hash, i)] >>> shift(hash, i)) & 15);
+        }
+        return min;
+    }
+
+    void increment(long hash){
+        boolean added = false;
+        for(int i=0; i<SEEDS.length; i++){
+            int index = index(hash, i);
+            int shift = shift(hash, i);
+            if(((table[index] >>> shift) & 15) != 15){
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if(added && ++additions == sampleSize){
+            halve();
+        }
+    }
+
+    private void halve(){
+        for(int i=0; i<table.length; i++){
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int index(long hash, int i){
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    //which of the 16 counters of the long
+    private static int shift(long hash, int i){
+        return ((int) (hash >>> (i << 2)) & 15) << 2;
+    }
+}
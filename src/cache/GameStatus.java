@@ -0,0 +1,29 @@
+package cache;
+
+import chess.ChessMatch;
+
+//what a position alone says about the game; repetitions and the move counters need the game that led to it
+public enum GameStatus {
+    PLAYING,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    INSUFFICIENT_MATERIAL;
+
+    public static GameStatus of(ChessMatch match){
+        if(!match.isNotCheckmate()){
+            return CHECKMATE;
+        }
+        if(match.isStalemate()){
+            return STALEMATE;
+        }
+        if(match.isInsufficientMaterial()){
+            return INSUFFICIENT_MATERIAL;
+        }
+        return match.isCheck() ? CHECK : PLAYING;
+    }
+
+    public boolean isGameOver(){
+        return this == CHECKMATE || this == STALEMATE || this == INSUFFICIENT_MATERIAL;
+    }
+}
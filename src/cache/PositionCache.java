@@ -0,0 +1,139 @@
+package cache;
+
+import chess.ChessMatch;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+
+import java.util.Arrays;
+
+//answers repeated questions about the same positions, openings and popular puzzles, from bounded caches instead of
+//a fresh ChessMatch each time: legal moves, game status and finished analyses. positions are keyed by the placement,
+//side, castling and en passant fields of their FEN, so a hit needs no parsing. stored analyses only fit searches
+//with the same evaluation and tablebases, so each setup needs its own cache
+public class PositionCache {
+    private final ResultCache<int[]> moves;
+    private final ResultCache<GameStatus> statuses;
+    private final ResultCache<Analysis> analyses;
+
+    //a tenth of the budget for statuses, three tenths for move lists and the rest for analyses
+    public PositionCache(long maxBytes) {
+        moves = new ResultCache<>("moves", maxBytes * 3 / 10, list -> 16 + 4 * list.length);
+        //the values are shared constants
+        statuses = new ResultCache<>("status", maxBytes / 10, status -> 0);
+        analyses = new ResultCache<>("analysis", maxBytes * 6 / 10, analysis -> 96 + 4 * analysis.result.getPrincipalVariation().length);
+    }
+
+    //a copy, the caller may change it
+    public int[] legalMoves(String fen){
+        String position = position(fen);
+        long key = key(position);
+        int[] list = moves.get(key, position);
+        if(list == null){
+            ChessMatch match = new ChessMatch(fen);
+            list = legalMoves(match);
+            store(key, position, list, GameStatus.of(match));
+        }
+        return list.clone();
+    }
+
+    public GameStatus status(String fen){
+        String position = position(fen);
+        long key = key(position);
+        GameStatus status = statuses.get(key, position);
+        if(status == null){
+            ChessMatch match = new ChessMatch(fen);
+            status = GameStatus.of(match);
+            store(key, position, legalMoves(match), status);
+        }
+        return status;
+    }
+
+    //a fixed depth is answered by any stored fixed depth search at least as deep, other limits need the same limits
+    public SearchResult analyze(String fen, SearchLimits limits, Search search){
+        String position = position(fen);
+        long key = key(position);
+        Analysis analysis = analyses.get(key, position, stored -> stored.answers(limits));
+        if(analysis != null){
+            return analysis.result;
+        }
+        SearchResult result = search.search(new ChessMatch(fen), limits);
+        analyses.put(key, position, new Analysis(result, limits));
+        return result;
+    }
+
+    //one parse answers both questions, so both are kept
+    private void store(long key, String position, int[] list, GameStatus status){
+        moves.put(key, position, list);
+        statuses.put(key, position, status);
+    }
+
+    private static int[] legalMoves(ChessMatch match){
+        int[] list = new int[ChessMatch.MAX_MOVES];
+        return Arrays.copyOf(list, match.generateLegalMoves(list));
+    }
+
+    //the first four fields of the FEN: the move counters change none of the answers
+    public static String position(String fen){
+        String[] fields = fen.trim().split("\\s+");
+        return String.join(" ", Arrays.copyOf(fields, Math.min(fields.length, 4)));
+    }
+
+    //FNV-1a, then mixed so that high and low bits both spread
+    public static long key(String position){
+        long h = 0xcbf29ce484222325L;
+        for(int i=0; i<position.length(); i++){
+            h ^= position.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    public void clear(){
+        moves.clear();
+        statuses.clear();
+        analyses.clear();
+    }
+
+    public ResultCache<int[]> getMoveCache() {
+        return moves;
+    }
+
+    public ResultCache<GameStatus> getStatusCache() {
+        return statuses;
+    }
+
+    public ResultCache<?> getAnalysisCache() {
+        return analyses;
+    }
+
+    //one line per cache
+    public String[] format(){
+        return new String[]{moves.toString(), statuses.toString(), analyses.toString()};
+    }
+
+    private static final class Analysis {
+        private final SearchResult result;
+        private final SearchLimits limits;
+
+        Analysis(SearchResult result, SearchLimits limits) {
+            this.result = result;
+            this.limits = limits;
+        }
+
+        boolean answers(SearchLimits wanted){
+            if(isFixedDepth(limits) && isFixedDepth(wanted)){
+                return limits.getDepth() >= wanted.getDepth();
+            }
+            return limits.getDepth() == wanted.getDepth() && limits.getTimeMillis() == wanted.getTimeMillis() && limits.getNodes() == wanted.getNodes();
+        }
+
+        private static boolean isFixedDepth(SearchLimits limits){
+            return limits.getDepth() > 0 && limits.getTimeMillis() == 0 && limits.getNodes() == 0;
+        }
+    }
+}
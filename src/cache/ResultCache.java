@@ -0,0 +1,336 @@
+package cache;
+
+import metrics.Counter;
+import metrics.Metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+//results by position key, within a budget of estimated bytes, evicted by W-TinyLFU: new entries wait in a small
+//LRU window, and when they leave it they only get into the main segmented LRU if they were asked for more often
+//than the entry they would push out, so a run of one-off positions cannot flush the popular ones.
+//keys are spread over segments with a lock each, so threads seldom wait for one another
+public class ResultCache<V> {
+    //node, hash map entry, boxed key and the header of the position text, besides the value and the text itself
+    private static final int ENTRY_BYTES = 160;
+    //for sizing the frequency sketches
+    private static final int EXPECTED_ENTRY_BYTES = 256;
+    private static final long MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final int MAX_SEGMENTS = 64;
+
+    private final String name;
+    private final long maxBytes;
+    private final ToIntFunction<? super V> weigher;
+    private final Segment<V>[] segments;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    //the weigher estimates the bytes a value holds
+    @SuppressWarnings("unchecked")
+    public ResultCache(String name, long maxBytes, ToIntFunction<? super V> weigher) {
+        if(maxBytes < ENTRY_BYTES){
+            throw new IllegalArgumentException("A cache needs a budget of at least " + ENTRY_BYTES + " bytes");
+        }
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        int count = 1;
+        int wanted = Math.min(4 * Runtime.getRuntime().availableProcessors(), MAX_SEGMENTS);
+        while(count < wanted && maxBytes / (count * 2) >= MIN_SEGMENT_BYTES){
+            count *= 2;
+        }
+        segments = (Segment<V>[]) new Segment<?>[count];
+        for(int i=0; i<count; i++){
+            segments[i] = new Segment<>(maxBytes / count);
+        }
+        hitCounter = Metrics.counter("cache." + name + ".hits");
+        missCounter = Metrics.counter("cache." + name + ".misses");
+    }
+
+    //null when the position is not stored
+    public V get(long key, String position){
+        return get(key, position, null);
+    }
+
+    //null when the position is not stored or its value is not usable; both count as misses
+    public V get(long key, String position, Predicate<? super V> usable){
+        V value = segment(key).get(key, position, usable);
+        if(Metrics.ENABLED){
+            (value != null ? hitCounter : missCounter).increment();
+        }
+        return value;
+    }
+
+    //replaces the value of the position; a value bigger than a whole segment is not stored
+    public void put(long key, String position, V value){
+        segment(key).put(key, position, value, ENTRY_BYTES + position.length() + weigher.applyAsInt(value));
+    }
+
+    public void clear(){
+        for(Segment<V> segment: segments){
+            segment.clear();
+        }
+    }
+
+    private Segment<V> segment(long key){
+        //high bits, the sketches index with the low ones
+        return segments[(int) (key >>> 40) & (segments.length - 1)];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits(){
+        long hits = 0;
+        for(Segment<V> segment: segments){
+            hits += segment.getHits();
+        }
+        return hits;
+    }
+
+    public long getMisses(){
+        long misses = 0;
+        for(Segment<V> segment: segments){
+            misses += segment.getMisses();
+        }
+        return misses;
+    }
+
+    public long getEvictions(){
+        long evictions = 0;
+        for(Segment<V> segment: segments){
+            evictions += segment.getEvictions();
+        }
+        return evictions;
+    }
+
+    //0 before the first lookup
+    public double getHitRate(){
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public int size(){
+        int size = 0;
+        for(Segment<V> segment: segments){
+            size += segment.size();
+        }
+        return size;
+    }
+
+    //estimated bytes in use
+    public long getBytes(){
+        long bytes = 0;
+        for(Segment<V> segment: segments){
+            bytes += segment.getBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d entries, %.1f of %.1f MB, %d hits, %d misses, hit rate %.1f%%, %d evictions",
+                name, size(), getBytes() / 1048576.0, maxBytes / 1048576.0, getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+    private static final class Segment<V> {
+        private static final int WINDOW = 0;
+        private static final int PROBATION = 1;
+        private static final int PROTECTED = 2;
+        private static final int[] EVICTION_ORDER = {PROBATION, PROTECTED, WINDOW};
+
+        private final Map<Long, Node<V>> nodes = new HashMap<>();
+        //sentinels of the three lists, least recently used next to them
+        private final Node<V>[] lists;
+        private final long[] bytes = new long[3];
+        private final FrequencySketch sketch;
+        private final long maxBytes;
+        private final long maxWindowBytes;
+        private final long maxProtectedBytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        @SuppressWarnings("unchecked")
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+            maxWindowBytes = Math.max(1, maxBytes / 100);
+            maxProtectedBytes = (maxBytes - maxWindowBytes) * 4 / 5;
+            sketch = new FrequencySketch((int) Math.min(maxBytes / EXPECTED_ENTRY_BYTES, 1 << 24));
+            lists = (Node<V>[]) new Node<?>[3];
+            for(int i=0; i<lists.length; i++){
+                lists[i] = new Node<>(0, null, null, 0);
+                lists[i].prev = lists[i];
+                lists[i].next = lists[i];
+            }
+        }
+
+        synchronized V get(long key, String position, Predicate<? super V> usable){
+            sketch.increment(key);
+            Node<V> node = nodes.get(key);
+            //another position with the same key is a miss too
+            if(node == null || !node.position.equals(position) || usable != null && !usable.test(node.value)){
+                misses++;
+                return null;
+            }
+            hits++;
+            touch(node);
+            return node.value;
+        }
+
+        synchronized void put(long key, String position, V value, int weight){
+            Node<V> node = nodes.get(key);
+            if(weight > maxBytes){
+                if(node != null){
+                    remove(node);
+                }
+                return;
+            }
+            if(node != null){
+                bytes[node.queue] += weight - node.weight;
+                node.position = position;
+                node.value = value;
+                node.weight = weight;
+                touch(node);
+            }else{
+                node = new Node<>(key, position, value, weight);
+                nodes.put(key, node);
+                link(node, WINDOW);
+            }
+            evict();
+        }
+
+        //a second use promotes a probation entry to protected, which makes room by sending its oldest back
+        private void touch(Node<V> node){
+            unlink(node);
+            if(node.queue != PROBATION){
+                link(node, node.queue);
+                return;
+            }
+            link(node, PROTECTED);
+            while(bytes[PROTECTED] > maxProtectedBytes){
+                Node<V> oldest = lists[PROTECTED].next;
+                unlink(oldest);
+                link(oldest, PROBATION);
+            }
+        }
+
+        private void evict(){
+            //entries leaving the window become candidates at the recent end of probation
+            Node<V> candidate = null;
+            while(bytes[WINDOW] > maxWindowBytes){
+                Node<V> oldest = lists[WINDOW].next;
+                unlink(oldest);
+                link(oldest, PROBATION);
+                if(candidate == null){
+                    candidate = oldest;
+                }
+            }
+            while(bytes[WINDOW] + bytes[PROBATION] + bytes[PROTECTED] > maxBytes){
+                Node<V> victim = oldest();
+                if(candidate == null || candidate == victim){
+                    if(candidate == victim){
+                        candidate = nextCandidate(candidate);
+                    }
+                    remove(victim);
+                }else if(sketch.frequency(candidate.key) > sketch.frequency(victim.key)){
+                    remove(victim);
+                }else{
+                    Node<V> rejected = candidate;
+                    candidate = nextCandidate(candidate);
+                    remove(rejected);
+                }
+                evictions++;
+            }
+        }
+
+        private Node<V> nextCandidate(Node<V> candidate){
+            return candidate.next == lists[PROBATION] ? null : candidate.next;
+        }
+
+        //least recently used of probation, then of protected, then of the window
+        private Node<V> oldest(){
+            for(int queue: EVICTION_ORDER){
+                if(lists[queue].next != lists[queue]){
+                    return lists[queue].next;
+                }
+            }
+            throw new IllegalStateException("Cache segment over budget with no entries");
+        }
+
+        private void remove(Node<V> node){
+            unlink(node);
+            nodes.remove(node.key);
+        }
+
+        private void link(Node<V> node, int queue){
+            Node<V> sentinel = lists[queue];
+            node.queue = queue;
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+            bytes[queue] += node.weight;
+        }
+
+        private void unlink(Node<V> node){
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            bytes[node.queue] -= node.weight;
+        }
+
+        synchronized void clear(){
+            nodes.clear();
+            for(int i=0; i<lists.length; i++){
+                lists[i].prev = lists[i];
+                lists[i].next = lists[i];
+                bytes[i] = 0;
+            }
+        }
+
+        synchronized long getHits() {
+            return hits;
+        }
+
+        synchronized long getMisses() {
+            return misses;
+        }
+
+        synchronized long getEvictions() {
+            return evictions;
+        }
+
+        synchronized int size(){
+            return nodes.size();
+        }
+
+        synchronized long getBytes(){
+            return bytes[WINDOW] + bytes[PROBATION] + bytes[PROTECTED];
+        }
+    }
+
+    private static final class Node<V> {
+        private final long key;
+        private String position;
+        private V value;
+        private int weight;
+        private int queue;
+        private Node<V> prev;
+        private Node<V> next;
+
+        Node(long key, String position, V value, int weight) {
+            this.key = key;
+            this.position = position;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package chess;
+
+//told about every piece put on or taken off the board, including the moves tried while generating legal moves.
+//pieces are numbered K, Q, R, B, N, P for white then black, squares from a8 = 0 to h1 = 63
+public interface BoardListener {
+    void pieceAdded(int piece, int square);
+
+    void pieceRemoved(int piece, int square);
+}
@@ -0,0 +1,134 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.Piece;
+import boardgame.Position;
+
+//8x8 board that keeps the squares of every piece by color and type, so kings and piece sets are found without scanning
+class ChessBoard extends Board {
+    static final int KING = 0;
+    static final int QUEEN = 1;
+    static final int ROOK = 2;
+    static final int BISHOP = 3;
+    static final int KNIGHT = 4;
+    static final int PAWN = 5;
+    //two of each piece plus eight promoted pawns
+    private static final int MAX_PER_TYPE = 10;
+
+    //indexed by Zobrist.pieceIndex: KQRBNP for white then black
+    private final int[][] squares = new int[12][MAX_PER_TYPE];
+    private final int[] counts = new int[12];
+    //position of the piece on each square inside its list
+    private final int[] slots = new int[64];
+    private int size;
+    //Zobrist key of the piece placement alone
+    private long key;
+    //one bit per occupied square, a8 = bit 0
+    private long occupancy;
+    private BoardListener listener;
+
+    ChessBoard() {
+        super(8, 8);
+    }
+
+    @Override
+    public void placePiece(Piece piece, Position pos) {
+        super.placePiece(piece, pos);
+        int list = Zobrist.pieceIndex((ChessPiece) piece);
+        int square = pos.getRow() * 8 + pos.getColumn();
+        if(counts[list] == MAX_PER_TYPE){
+            throw new ChessException("Too many pieces of the same type on the board");
+        }
+        slots[square] = counts[list];
+        squares[list][counts[list]++] = square;
+        size++;
+        key ^= Zobrist.PIECES[list][square];
+        occupancy |= 1L << square;
+        if(listener != null){
+            listener.pieceAdded(list, square);
+        }
+    }
+
+    @Override
+    public Piece removePiece(Position pos) {
+        Piece piece = super.removePiece(pos);
+        if(piece != null){
+            int list = Zobrist.pieceIndex((ChessPiece) piece);
+            int square = pos.getRow() * 8 + pos.getColumn();
+            int last = squares[list][--counts[list]];
+            squares[list][slots[square]] = last;
+            slots[last] = slots[square];
+            size--;
+            key ^= Zobrist.PIECES[list][square];
+            occupancy &= ~(1L << square);
+            if(listener != null){
+                listener.pieceRemoved(list, square);
+            }
+        }
+        return piece;
+    }
+
+    int kingSquare(Color color){
+        int list = index(color, KING);
+        if(counts[list] == 0){
+            throw new IllegalStateException("There is no "+ color + " king on the board");
+        }
+        return squares[list][0];
+    }
+
+    int count(Color color, int type){
+        return counts[index(color, type)];
+    }
+
+    //pieces of one side, kings and pawns included
+    int count(Color color){
+        int n = 0;
+        for(int type=KING; type<=PAWN; type++){
+            n += counts[index(color, type)];
+        }
+        return n;
+    }
+
+    int square(Color color, int type, int i){
+        return squares[index(color, type)][i];
+    }
+
+    //copies the squares of one side into out, which needs room for 16 entries; the copy stays valid while moves are made
+    int squares(Color color, int[] out){
+        int n = 0;
+        for(int type=KING; type<=PAWN; type++){
+            int list = index(color, type);
+            System.arraycopy(squares[list], 0, out, n, counts[list]);
+            n += counts[list];
+        }
+        return n;
+    }
+
+    int size(){
+        return size;
+    }
+
+    long getKey(){
+        return key;
+    }
+
+    long getOccupancy(){
+        return occupancy;
+    }
+
+    //the new listener is told about the pieces already on the board
+    void setListener(BoardListener listener){
+        this.listener = listener;
+        if(listener != null){
+            for(int list=0; list<12; list++){
+                for(int i=0; i<counts[list]; i++){
+                    listener.pieceAdded(list, squares[list][i]);
+                }
+            }
+        }
+    }
+
+    private static int index(Color color, int type){
+        return color == Color.WHITE ? type : type + 6;
+    }
+}
@@ -1,31 +1,129 @@
 package chess;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
 import chesspieces.*;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.MoveEvent;
+import metrics.PromotionEvent;
+import tablebase.Tablebases;
+import tablebase.Wdl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ChessMatch {
-    private final Board board;
+    public static final int MAX_MOVES = 256;
+    //number of the usual starting position among the Chess960 ones
+    public static final int STANDARD_START = 518;
+
+    private static final Counter PLAYS = Metrics.counter("match.play");
+    private static final Counter TAKE_BACKS = Metrics.counter("match.takeBack");
+    private static final Counter MAKES = Metrics.counter("match.makeMove");
+    private static final Counter UNDOS = Metrics.counter("match.undoMove");
+    private static final Counter GENERATIONS = Metrics.counter("match.legalMoveGenerations");
+    private static final Counter GENERATED = Metrics.counter("match.legalMovesGenerated");
+    private static final Histogram PERFORM_TIME = Metrics.histogram("match.performChessMove.ns");
+    private static final Histogram GENERATION_TIME = Metrics.histogram("match.computeLegalMoves.ns");
+    private static final Histogram CHECK_TIME = Metrics.histogram("match.testCheck.ns");
+    private static final Histogram GAME_END_TIME = Metrics.histogram("match.testGameEnd.ns");
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    //tells the matches of one process apart in recordings
+    private final long id = NEXT_ID.incrementAndGet();
+
+    private final ChessBoard board;
     private int turn;
     private Color currentPlayer;
     private boolean check;
     private boolean checkmate;
+    private boolean stalemate;
+    private boolean insufficientMaterial;
+    private boolean repetition;
+    private Tablebases tablebases;
+    private final List<MatchListener> matchListeners = new ArrayList<>();
+    private Wdl tablebaseResult;
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
+    private int halfmoveClock;
 
-    private final List<ChessPiece> currentPieces = new ArrayList<>();
     private final List<ChessPiece> capturedPieces = new ArrayList<>();
+    //state before each played move, indexed by ply and grown by doubling so pushes don't allocate
+    private int ply;
+    private int[] moves = new int[MAX_MOVES];
+    private Piece[] captured = new Piece[MAX_MOVES];
+    private ChessPiece[] promotedPawns = new ChessPiece[MAX_MOVES];
+    private ChessPiece[] enPassantPawns = new ChessPiece[MAX_MOVES];
+    private int[] castlingRights = new int[MAX_MOVES];
+    private int[] halfmoveClocks = new int[MAX_MOVES];
+    private long[] keys = new long[MAX_MOVES];
+    private byte[] states = new byte[MAX_MOVES];
+    //bit of states for moves that castled, above the check and game end flags
+    private static final int CASTLING = 32;
+    private Wdl[] tablebaseResults = new Wdl[MAX_MOVES];
+    //legal moves of the player to move, built on first use and dropped whenever the position changes
+    private final int[] legalMoves = new int[MAX_MOVES];
+    private int legalMoveCount = -1;
+    //scratch copy of the piece index
+    private final int[] pieceSquares = new int[16];
+    //files of the castling rooks, in the order of the rights: white king side, white queen side, black king side, black queen side
+    private final int[] castlingFiles = {7, 0, 7, 0};
+    //castling moves are written as the king taking its own rook, and FEN castling rights as X-FEN
+    private boolean chess960;
 
     public ChessMatch() {
-        this.board = new Board(8, 8);
+        this.board = new ChessBoard();
+        turn = 1;
+        currentPlayer = Color.WHITE;
+        initialSetup(STANDARD_START);
+    }
+
+    //Chess960 game from one of the 960 starting positions, numbered as by Scharnagl
+    public ChessMatch(int startPosition) {
+        if(startPosition < 0 || startPosition >= 960){
+            throw new ChessException("There is no Chess960 starting position " + startPosition);
+        }
+        this.board = new ChessBoard();
         turn = 1;
         currentPlayer = Color.WHITE;
-        initialSetup();
+        chess960 = true;
+        initialSetup(startPosition);
+    }
+
+    public static ChessMatch randomChess960(Random random){
+        return new ChessMatch(random.nextInt(960));
+    }
+
+    //Forsyth-Edwards notation
+    public ChessMatch(String fen) {
+        this.board = new ChessBoard();
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 2 || (!fields[1].equals("w") && !fields[1].equals("b"))){
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        placeFenPieces(fields[0]);
+        currentPlayer = fields[1].equals("w") ? Color.WHITE : Color.BLACK;
+        setupMoveCounts(fields.length > 2 ? fields[2] : "-");
+        if(fields.length > 3 && !fields[3].equals("-")){
+            setupEnPassant(fields[3]);
+        }
+        try {
+            halfmoveClock = fields.length > 4 ? Math.max(Integer.parseInt(fields[4]), 0) : 0;
+            int fullMove = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+            turn = 2 * (Math.max(fullMove, 1) - 1) + (currentPlayer == Color.WHITE ? 1 : 2);
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid FEN move counters: " + fen);
+        }
+        if(testCheck(getOpponent(currentPlayer))){
+            throw new ChessException("Invalid FEN: the player not to move is in check");
+        }
+        check = testCheck(currentPlayer);
+        testGameEnd();
     }
 
     public ChessPiece[][] getPieces(){
@@ -38,82 +136,706 @@ public class ChessMatch {
         return mat;
     }
 
+    public String getFen(){
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<board.getRows(); i++){
+            int empty = 0;
+            for(int j=0; j<board.getColumns(); j++){
+                ChessPiece p = (ChessPiece) board.piece(i, j);
+                if(p == null){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(p.getColor() == Color.WHITE ? p.toString() : p.toString().toLowerCase());
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(i < board.getRows() - 1){
+                sb.append('/');
+            }
+        }
+        sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+        int rights = castlingRights();
+        for(int i=0; i<4; i++){
+            if((rights & 1 << i) != 0){
+                sb.append(castlingLetter(i));
+            }
+        }
+        if(rights == 0){
+            sb.append('-');
+        }
+        sb.append(' ');
+        if(enPassantVulnerable != null && enPassantVulnerable.getColor() != currentPlayer && enPassantVulnerable.isOnBoard()){
+            Position pos = enPassantVulnerable.getPosition();
+            int behind = enPassantVulnerable.getColor() == Color.WHITE ? 1 : -1;
+            sb.append(Move.square((pos.getRow() + behind) * 8 + pos.getColumn()));
+        }else{
+            sb.append('-');
+        }
+        sb.append(' ').append(halfmoveClock).append(' ').append((turn + 1) / 2);
+        return sb.toString();
+    }
+
+    //KQkq as bits 0 to 3
+    public int getCastlingRights(){
+        return castlingRights();
+    }
+
+    private int castlingRights(){
+        return (canCastle(0) ? 1 : 0) | (canCastle(1) ? 2 : 0) | (canCastle(2) ? 4 : 0) | (canCastle(3) ? 8 : 0);
+    }
+
+    //right 0 to 3 in KQkq order: king and rook unmoved, with the rook on its side of the king
+    private boolean canCastle(int right){
+        Color color = right < 2 ? Color.WHITE : Color.BLACK;
+        int row = right < 2 ? 7 : 0;
+        int king = board.kingSquare(color);
+        int rookColumn = castlingFiles[right];
+        if(king / 8 != row || (right % 2 == 0 ? rookColumn <= king % 8 : rookColumn >= king % 8)){
+            return false;
+        }
+        Piece rook = board.piece(row, rookColumn);
+        return rook instanceof Rook && ((ChessPiece) rook).getColor() == color && ((ChessPiece) rook).getMoveCount() == 0
+                && ((ChessPiece) board.piece(row, king % 8)).getMoveCount() == 0;
+    }
+
+    //KQkq, or in Chess960 the file of the rook when another rook stands between it and the edge
+    private char castlingLetter(int right){
+        char letter = "KQkq".charAt(right);
+        if(chess960){
+            int row = right < 2 ? 7 : 0;
+            if(outermostRook(row, right < 2 ? Color.WHITE : Color.BLACK, right % 2 == 0) != castlingFiles[right]){
+                letter = (char) ((right < 2 ? 'A' : 'a') + castlingFiles[right]);
+            }
+        }
+        return letter;
+    }
+
+    //file of the rook closest to the edge on one side of the king, -1 if there is none
+    private int outermostRook(int row, Color color, boolean kingSide){
+        int king = board.kingSquare(color) % 8;
+        for(int i=0; i<8; i++){
+            int column = kingSide ? 7 - i : i;
+            if(kingSide ? column <= king : column >= king){
+                break;
+            }
+            Piece p = board.piece(row, column);
+            if(p instanceof Rook && ((ChessPiece) p).getColor() == color){
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    //marks the rook squares of the castling moves of one side whose squares are free and not attacked;
+    //the king may still end in check, legal move generation tests that as for every move
+    public void addCastlingMoves(Color color, boolean[][] mat){
+        int first = color == Color.WHITE ? 0 : 2;
+        for(int right=first; right<first+2; right++){
+            if(!canCastle(right)){
+                continue;
+            }
+            int row = right < 2 ? 7 : 0;
+            int king = board.kingSquare(color) % 8;
+            int rook = castlingFiles[right];
+            boolean kingSide = right % 2 == 0;
+            long kingPath = rowSpan(row, king, kingSide ? 6 : 2);
+            long rookPath = rowSpan(row, rook, kingSide ? 5 : 3);
+            //the king and the rook may pass over each other's squares
+            long free = (kingPath | rookPath) & ~(1L << (row * 8 + king)) & ~(1L << (row * 8 + rook));
+            if((board.getOccupancy() & free) != 0){
+                continue;
+            }
+            boolean attacked = false;
+            for(long squares=kingPath; squares!=0 && !attacked; squares&=squares-1){
+                attacked = isAttacked(Long.numberOfTrailingZeros(squares), getOpponent(color));
+            }
+            if(!attacked){
+                mat[row][rook] = true;
+            }
+        }
+    }
+
+    //squares of one row from one column to another, both included
+    private static long rowSpan(int row, int from, int to){
+        int low = Math.min(from, to);
+        int high = Math.max(from, to);
+        return ((1L << (high - low + 1)) - 1) << (row * 8 + low);
+    }
+
+    //a move of a king onto a rook of its own color
+    private boolean isCastling(Piece moving, Position target){
+        Piece p = board.piece(target);
+        return moving instanceof King && p instanceof Rook && ((ChessPiece) p).getColor() == ((ChessPiece) moving).getColor();
+    }
+
+    //the king move onto its own rook for a king moving two squares, outside Chess960 where that is the usual way to ask for castling
+    private Position castlingTarget(Position start, Position target){
+        Piece p = board.piece(start);
+        if(chess960 || !(p instanceof King) || start.getRow() != target.getRow() || Math.abs(target.getColumn() - start.getColumn()) != 2){
+            return target;
+        }
+        int right = (((ChessPiece) p).getColor() == Color.WHITE ? 0 : 2) + (target.getColumn() > start.getColumn() ? 0 : 1);
+        return Position.of(start.getRow(), castlingFiles[right]);
+    }
+
+    //coordinate notation of a legal move, with castling as a two square king move outside Chess960
+    public String toUci(int move){
+        Position start = Position.of(Move.from(move) / 8, Move.from(move) % 8);
+        Position target = Position.of(Move.to(move) / 8, Move.to(move) % 8);
+        if(!chess960 && isCastling(board.piece(start), target)){
+            return Move.toString(Move.of(Move.from(move), start.getRow() * 8 + (target.getColumn() > start.getColumn() ? 6 : 2)));
+        }
+        return Move.toString(move);
+    }
+
+    public boolean isChess960() {
+        return chess960;
+    }
+
+    //notation of castling moves, the positions are the same
+    public void setChess960(boolean chess960) {
+        this.chess960 = chess960;
+    }
+
+    //fills moves (at least MAX_MOVES long) with the legal moves of the player to move, one entry per promotion type
+    public int generateLegalMoves(int[] moves){
+        int count = legalMoves();
+        System.arraycopy(legalMoves, 0, moves, 0, count);
+        return count;
+    }
+
+    private int legalMoves(){
+        if(legalMoveCount < 0){
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            //computeLegalMoves makes and undoes moves, so the count is only set once it is done
+            legalMoveCount = computeLegalMoves(legalMoves);
+            if(Metrics.ENABLED){
+                GENERATION_TIME.record(System.nanoTime() - start);
+                GENERATIONS.increment();
+                GENERATED.add(legalMoveCount);
+            }
+        }
+        return legalMoveCount;
+    }
+
+    private void invalidateLegalMoves(){
+        legalMoveCount = -1;
+    }
+
+    private boolean isLegalMove(int from, int to){
+        int count = legalMoves();
+        for(int i=0; i<count; i++){
+            if(Move.from(legalMoves[i]) == from && Move.to(legalMoves[i]) == to){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int computeLegalMoves(int[] moves){
+        int count = 0;
+        int n = board.squares(currentPlayer, pieceSquares);
+        for(int k=0; k<n; k++){
+            int from = pieceSquares[k];
+            Position start = Position.of(from / 8, from % 8);
+            ChessPiece p = (ChessPiece) board.piece(start);
+            boolean[][] mat = p.possibleMoves();
+            for(int i=0;i<board.getRows();i++){
+                for(int j=0;j<board.getColumns();j++){
+                    if(mat[i][j]){
+                        Position target = Position.of(i, j);
+                        boolean castling = isCastling(p, target);
+                        Piece captured = makeMove(start, target, castling);
+                        boolean test = testCheck(currentPlayer);
+                        undoMove(start, target, captured, castling);
+                        if(test){
+                            continue;
+                        }
+                        if(p instanceof Pawn && (i == 0 || i == board.getRows() - 1)){
+                            for(char type: "QRBN".toCharArray()){
+                                moves[count++] = Move.of(from, i * 8 + j, type);
+                            }
+                        }else{
+                            moves[count++] = Move.of(from, i * 8 + j);
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    //quiet moves the player who just moved could have played to get here, from the current square back to the previous one
+    public int generateUnmoves(int[] moves){
+        int count = 0;
+        int[] squares = new int[16];
+        int n = board.squares(getOpponent(currentPlayer), squares);
+        for(int k=0; k<n; k++){
+            boolean[][] mat = board.piece(squares[k] / 8, squares[k] % 8).possibleUnmoves();
+            for(int i=0;i<board.getRows();i++){
+                for(int j=0;j<board.getColumns();j++){
+                    if(mat[i][j]){
+                        moves[count++] = Move.of(squares[k], i * 8 + j);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
     public boolean[][] possibleMoves(ChessPosition startPos){
         Position pos = startPos.toPosition();
         validateStartPosition(pos);
-        return  board.piece(pos).possibleMoves();
+        boolean[][] mat = new boolean[board.getRows()][board.getColumns()];
+        int from = pos.getRow() * 8 + pos.getColumn();
+        int count = legalMoves();
+        for(int i=0; i<count; i++){
+            if(Move.from(legalMoves[i]) == from){
+                int to = Move.to(legalMoves[i]);
+                //outside Chess960 castling is shown where the king goes
+                if(!chess960 && isCastling(board.piece(pos), Position.of(to / 8, to % 8))){
+                    to = to / 8 * 8 + (to % 8 > from % 8 ? 6 : 2);
+                }
+                mat[to / 8][to % 8] = true;
+            }
+        }
+        return mat;
     }
 
     public void performChessMove(ChessPosition startPosition, ChessPosition targetPosition){
+        long begin = Metrics.ENABLED ? System.nanoTime() : 0;
+        MoveEvent event = Metrics.isRecording() ? new MoveEvent() : null;
+        if(event != null){
+            event.begin();
+        }
         Position start = startPosition.toPosition();
-        Position target = targetPosition.toPosition();
+        Position target = castlingTarget(start, targetPosition.toPosition());
         validateStartPosition(start);
         validateTargetPosition(start, target);
-        Piece capturedPiece = makeMove(start, target);
-        if(testCheck(currentPlayer)){
-            undoMove(start, target, capturedPiece);
-            throw new ChessException("You can't put yourself in check");
+        //special move promotion: play() puts a queen, replacePromotedPiece can change it
+        play(Move.of(start.getRow() * 8 + start.getColumn(), target.getRow() * 8 + target.getColumn()));
+        promoted = promotedPawns[ply - 1] != null ? (ChessPiece) board.piece(target) : null;
+        testGameEnd();
+        if(Metrics.ENABLED){
+            PERFORM_TIME.record(System.nanoTime() - begin);
+        }
+        if(event != null){
+            event.end();
+            if(event.shouldCommit()){
+                event.gameId = id;
+                event.ply = ply;
+                event.move = Move.toString(moves[ply - 1]);
+                event.commit();
+            }
+        }
+        for(MatchListener listener: matchListeners){
+            listener.movePerformed(this, moves[ply - 1], (ChessPiece) captured[ply - 1]);
+        }
+    }
+
+    public void performChessMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        performChessMove(ChessPosition.fromSquare(from), ChessPosition.fromSquare(to));
+        if(promoted != null && Move.isPromotion(move) && Move.promotion(move) != 'Q'){
+            replacePromotedPiece(String.valueOf(Move.promotion(move)));
+        }
+    }
+
+    //plays a legal move without the end of game tests, so searches can walk the tree and come back with takeBack()
+    public void play(int move){
+        if(Metrics.ENABLED){
+            PLAYS.increment();
+        }
+        Position start = Position.of(Move.from(move) / 8, Move.from(move) % 8);
+        Position target = Position.of(Move.to(move) / 8, Move.to(move) % 8);
+        if(ply == moves.length){
+            growHistory();
+        }
+        moves[ply] = move;
+        enPassantPawns[ply] = enPassantVulnerable;
+        castlingRights[ply] = castlingRights();
+        halfmoveClocks[ply] = halfmoveClock;
+        keys[ply] = getKey();
+        states[ply] = (byte) ((check ? 1 : 0) | (checkmate ? 2 : 0) | (stalemate ? 4 : 0) | (insufficientMaterial ? 8 : 0) | (repetition ? 16 : 0));
+        tablebaseResults[ply] = tablebaseResult;
+        ChessPiece movedPiece = (ChessPiece) board.piece(start);
+        boolean castling = isCastling(movedPiece, target);
+        if(castling){
+            states[ply] |= CASTLING;
+        }
+        captured[ply] = makeMove(start, target, castling);
+        promotedPawns[ply] = null;
+        if(movedPiece instanceof Pawn && (target.getRow() == 0 || target.getRow() == board.getRows() - 1)){
+            promotedPawns[ply] = movedPiece;
+            board.removePiece(target);
+            board.placePiece(newPiece(String.valueOf(Move.isPromotion(move) ? Move.promotion(move) : 'Q'), movedPiece.getColor()), target);
         }
-        //special move en passant
-        ChessPiece movedPiece = (ChessPiece) board.piece(target);
         if(movedPiece instanceof Pawn && Math.abs(start.getRow() - target.getRow()) == 2){
             enPassantVulnerable = movedPiece;
+        }else{
+            enPassantVulnerable = null;
         }
-        //special move promotion
+        halfmoveClock = movedPiece instanceof Pawn || captured[ply] != null ? 0 : halfmoveClock + 1;
+        ply++;
+        turn++;
+        currentPlayer = getOpponent(currentPlayer);
+        invalidateLegalMoves();
+        check = testCheck(currentPlayer);
+        checkmate = false;
+        stalemate = false;
+        insufficientMaterial = false;
+        repetition = false;
+        tablebaseResult = null;
+    }
+
+    //passes the turn for null move pruning, taken back with takeBack; the player to move must not be in check
+    public void playNullMove(){
+        if(ply == moves.length){
+            growHistory();
+        }
+        moves[ply] = Move.NONE;
+        enPassantPawns[ply] = enPassantVulnerable;
+        castlingRights[ply] = castlingRights();
+        halfmoveClocks[ply] = halfmoveClock;
+        keys[ply] = getKey();
+        states[ply] = (byte) (repetition ? 16 : 0);
+        tablebaseResults[ply] = tablebaseResult;
+        enPassantVulnerable = null;
+        //positions before the pass don't count as repetitions of those after it
+        halfmoveClock = 0;
+        ply++;
+        turn++;
+        currentPlayer = getOpponent(currentPlayer);
+        invalidateLegalMoves();
+        check = false;
+        repetition = false;
+        tablebaseResult = null;
+    }
+
+    public void takeBack(){
+        if(ply == 0){
+            throw new IllegalStateException("There is no move to take back.");
+        }
+        if(Metrics.ENABLED){
+            TAKE_BACKS.increment();
+        }
+        if(moves[ply - 1] == Move.NONE){
+            takeBackNullMove();
+            return;
+        }
+        ply--;
+        Position start = Position.of(Move.from(moves[ply]) / 8, Move.from(moves[ply]) % 8);
+        Position target = Position.of(Move.to(moves[ply]) / 8, Move.to(moves[ply]) % 8);
+        enPassantVulnerable = enPassantPawns[ply];
+        if(promotedPawns[ply] != null){
+            board.removePiece(target);
+            board.placePiece(promotedPawns[ply], target);
+        }
+        undoMove(start, target, captured[ply], (states[ply] & CASTLING) != 0);
+        captured[ply] = null;
+        promotedPawns[ply] = null;
+        enPassantPawns[ply] = null;
+        halfmoveClock = halfmoveClocks[ply];
+        turn--;
+        currentPlayer = getOpponent(currentPlayer);
+        invalidateLegalMoves();
+        check = (states[ply] & 1) != 0;
+        checkmate = (states[ply] & 2) != 0;
+        stalemate = (states[ply] & 4) != 0;
+        insufficientMaterial = (states[ply] & 8) != 0;
+        repetition = (states[ply] & 16) != 0;
+        tablebaseResult = tablebaseResults[ply];
         promoted = null;
-        if(movedPiece instanceof Pawn){
-            if((movedPiece.getColor() == Color.WHITE && target.getRow() == 0) || (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)){
-                promoted = (ChessPiece) board.piece(target);
-                promoted = replacePromotedPiece("Q");
+    }
+
+    private void takeBackNullMove(){
+        ply--;
+        enPassantVulnerable = enPassantPawns[ply];
+        enPassantPawns[ply] = null;
+        halfmoveClock = halfmoveClocks[ply];
+        turn--;
+        currentPlayer = getOpponent(currentPlayer);
+        invalidateLegalMoves();
+        check = false;
+        repetition = (states[ply] & 16) != 0;
+        tablebaseResult = tablebaseResults[ply];
+    }
+
+    //takes back moves until only the first plies remain, 0 goes back to the starting position
+    public void takeBackTo(int plies){
+        if(plies < 0 || plies > ply){
+            throw new IllegalArgumentException("There is no ply " + plies + " in this game");
+        }
+        while(ply > plies){
+            takeBack();
+        }
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    //moves played since the starting position, in order, for replay
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, ply);
+    }
+
+    private void growHistory(){
+        int length = moves.length * 2;
+        moves = Arrays.copyOf(moves, length);
+        captured = Arrays.copyOf(captured, length);
+        promotedPawns = Arrays.copyOf(promotedPawns, length);
+        enPassantPawns = Arrays.copyOf(enPassantPawns, length);
+        castlingRights = Arrays.copyOf(castlingRights, length);
+        halfmoveClocks = Arrays.copyOf(halfmoveClocks, length);
+        keys = Arrays.copyOf(keys, length);
+        states = Arrays.copyOf(states, length);
+        tablebaseResults = Arrays.copyOf(tablebaseResults, length);
+    }
+
+    //true when the position already occurred since the last capture or pawn move, searches score it as a draw
+    public boolean isRepetition(){
+        return repetitions(1) >= 1;
+    }
+
+    //counts earlier occurrences of the current position, stopping once limit are found
+    private int repetitions(int limit){
+        long key = getKey();
+        int rights = castlingRights();
+        int count = 0;
+        int first = Math.max(ply - halfmoveClock, 0);
+        for(int i=ply-4; i>=first && count<limit; i-=2){
+            //castling rights only ever get lost, so nothing before they changed can repeat
+            if(castlingRights[i] != rights){
+                break;
+            }
+            if(keys[i] == key){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public ChessPiece pieceAt(int square){
+        return (ChessPiece) board.piece(square / 8, square % 8);
+    }
+
+    public boolean isCapture(int move){
+        ChessPiece p = pieceAt(Move.from(move));
+        ChessPiece target = pieceAt(Move.to(move));
+        return target != null ? p == null || target.getColor() != p.getColor() : p instanceof Pawn && Move.from(move) % 8 != Move.to(move) % 8;
+    }
+
+    public int getPieceCount(){
+        return board.size();
+    }
+
+    //pieces of one color and type, the types KQRBNP numbered 0 to 5
+    public int getPieceCount(Color color, int type){
+        return board.count(color, type);
+    }
+
+    //square of the i-th of those pieces in no particular order, a8 = 0
+    public int getPieceSquare(Color color, int type, int i){
+        return board.square(color, type, i);
+    }
+
+    //standard algebraic notation of a legal move of the player to move, the inverse of parseSan
+    public String toSan(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece p = pieceAt(from);
+        StringBuilder sb = new StringBuilder();
+        if(isCastling(p, Position.of(to / 8, to % 8))){
+            sb.append(to % 8 > from % 8 ? "O-O" : "O-O-O");
+        }else{
+            String square = Move.square(from);
+            if(p instanceof Pawn){
+                if(isCapture(move)){
+                    sb.append(square.charAt(0));
+                }
+            }else{
+                sb.append(p);
+                //other pieces of the same type that can reach the target
+                boolean sameFile = false;
+                boolean sameRank = false;
+                boolean ambiguous = false;
+                int count = legalMoves();
+                for(int i=0; i<count; i++){
+                    int other = Move.from(legalMoves[i]);
+                    if(Move.to(legalMoves[i]) == to && other != from && pieceAt(other).toString().equals(p.toString())){
+                        ambiguous = true;
+                        sameFile |= other % 8 == from % 8;
+                        sameRank |= other / 8 == from / 8;
+                    }
+                }
+                if(ambiguous){
+                    if(!sameFile){
+                        sb.append(square.charAt(0));
+                    }else if(!sameRank){
+                        sb.append(square.charAt(1));
+                    }else{
+                        sb.append(square);
+                    }
+                }
+            }
+            if(isCapture(move)){
+                sb.append('x');
+            }
+            sb.append(Move.square(to));
+            if(Move.isPromotion(move)){
+                sb.append('=').append(Move.promotion(move));
             }
         }
+        play(move);
+        if(check){
+            sb.append(legalMoves() == 0 ? '#' : '+');
+        }
+        takeBack();
+        return sb.toString();
+    }
 
-        check = testCheck(getOpponent(currentPlayer));
-        if(testCheckmate(getOpponent(currentPlayer))){
-            checkmate = true;
-        }else {
-            nextTurn();
+    //standard algebraic notation such as Nbd7, exd5, O-O or e8=Q+
+    public int parseSan(String san){
+        String s = san.replaceAll("[+#!?]", "");
+        int[] moves = new int[MAX_MOVES];
+        int n = generateLegalMoves(moves);
+        if(s.equals("O-O") || s.equals("0-0") || s.equals("O-O-O") || s.equals("0-0-0")){
+            boolean kingSide = s.length() == 3;
+            for(int i=0; i<n; i++){
+                int from = Move.from(moves[i]);
+                int to = Move.to(moves[i]);
+                if(isCastling(board.piece(from / 8, from % 8), Position.of(to / 8, to % 8)) && to > from == kingSide){
+                    return moves[i];
+                }
+            }
+            throw new ChessException("Illegal move: " + san);
+        }
+        char promotion = 0;
+        int eq = s.indexOf('=');
+        if(eq >= 0 && eq + 1 < s.length()){
+            promotion = s.charAt(eq + 1);
+            s = s.substring(0, eq);
+        }else if(s.length() > 2 && "QRBN".indexOf(s.charAt(s.length() - 1)) >= 0 && Character.isDigit(s.charAt(s.length() - 2))){
+            promotion = s.charAt(s.length() - 1);
+            s = s.substring(0, s.length() - 1);
+        }
+        if(s.length() < 2){
+            throw new ChessException("Invalid move: " + san);
+        }
+        String type = "KQRBN".indexOf(s.charAt(0)) >= 0 ? s.substring(0, 1) : "P";
+        int to = Move.parseSquare(s.substring(s.length() - 2));
+        String hint = s.substring(type.equals("P") ? 0 : 1, s.length() - 2).replace("x", "");
+        int found = Move.NONE;
+        for(int i=0; i<n; i++){
+            int from = Move.from(moves[i]);
+            if(Move.to(moves[i]) != to || !board.piece(from / 8, from % 8).toString().equals(type)){
+                continue;
+            }
+            if(Move.isPromotion(moves[i]) ? Move.promotion(moves[i]) != promotion : promotion != 0){
+                continue;
+            }
+            String square = Move.square(from);
+            boolean matches = true;
+            for(char c: hint.toCharArray()){
+                matches &= square.indexOf(c) >= 0;
+            }
+            if(!matches){
+                continue;
+            }
+            if(found != Move.NONE){
+                throw new ChessException("Ambiguous move: " + san);
+            }
+            found = moves[i];
         }
+        if(found == Move.NONE){
+            throw new ChessException("Illegal move: " + san);
+        }
+        return found;
+    }
 
+    //Zobrist key of piece placement, side to move, castling rights and a capturable en passant pawn
+    public long getKey(){
+        long key = board.getKey();
+        if(currentPlayer == Color.BLACK){
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        int rights = castlingRights();
+        for(int i=0; i<4; i++){
+            if((rights & 1 << i) != 0){
+                key ^= Zobrist.CASTLING[i];
+            }
+        }
+        int file = enPassantFile();
+        if(file >= 0){
+            key ^= Zobrist.EN_PASSANT[file];
+        }
+        return key;
+    }
+
+    //whether a pawn of the player to move stands next to one that just made a double step
+    public boolean canCaptureEnPassant(){
+        return enPassantFile() >= 0;
     }
 
-    private Piece makeMove(Position start, Position target){
+    //file of the pawn that can be taken en passant, -1 when none can
+    private int enPassantFile(){
+        if(enPassantVulnerable != null && enPassantVulnerable.getColor() != currentPlayer && enPassantVulnerable.isOnBoard()){
+            Position pos = enPassantVulnerable.getPosition();
+            for(int column = pos.getColumn() - 1; column <= pos.getColumn() + 1; column += 2){
+                if(column >= 0 && column < board.getColumns() && board.piece(pos.getRow(), column) instanceof Pawn
+                        && ((ChessPiece) board.piece(pos.getRow(), column)).getColor() == currentPlayer){
+                    return pos.getColumn();
+                }
+            }
+        }
+        return -1;
+    }
+
+    private Piece makeMove(Position start, Position target, boolean castling){
+        if(Metrics.ENABLED){
+            MAKES.increment();
+        }
+        invalidateLegalMoves();
         ChessPiece p = (ChessPiece) board.removePiece(start);
         Piece capturedPiece = board.removePiece(target);
+        //special move castling: the king and the rook go to the g and f files, or c and d, wherever they started
+        if(castling){
+            boolean kingSide = target.getColumn() > start.getColumn();
+            board.placePiece(p, Position.of(start.getRow(), kingSide ? 6 : 2));
+            board.placePiece(capturedPiece, Position.of(start.getRow(), kingSide ? 5 : 3));
+            ((ChessPiece) capturedPiece).increaseMoveCount();
+            p.increaseMoveCount();
+            return null;
+        }
         board.placePiece(p, target);
         if(capturedPiece != null){
-            ChessPiece captured = (ChessPiece) capturedPiece;
-            currentPieces.remove(captured);
-            capturedPieces.add(captured);
-        }
-        //Kingside Castling
-        if(p instanceof King && target.getColumn() == start.getColumn()+2){
-            Position startR = new Position(start.getRow(), start.getColumn()+3);
-            Position targetR = new Position(start.getRow(), start.getColumn()+1);
-            ChessPiece rook = (ChessPiece) board.removePiece(startR);
-            board.placePiece(rook, targetR);
-            rook.increaseMoveCount();
-        }
-        //Queenside castling
-        if(p instanceof King && target.getColumn() == start.getColumn()-2){
-            Position startR = new Position(start.getRow(), start.getColumn()-4);
-            Position targetR = new Position(start.getRow(), start.getColumn()-1);
-            ChessPiece rook = (ChessPiece) board.removePiece(startR);
-            board.placePiece(rook, targetR);
-            rook.increaseMoveCount();
+            capturedPieces.add((ChessPiece) capturedPiece);
         }
         //special move en passant
         if(p instanceof Pawn){
             if(target.getColumn() != start.getColumn() && capturedPiece == null){
                 Position pawnPosition;
                 if(p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(target.getRow()+1, target.getColumn());
+                    pawnPosition = Position.of(target.getRow()+1, target.getColumn());
                 }else{
-                    pawnPosition = new Position(target.getRow()-1, target.getColumn());
+                    pawnPosition = Position.of(target.getRow()-1, target.getColumn());
                 }
                 Piece captured = board.removePiece(pawnPosition);
                 capturedPieces.add((ChessPiece) captured);
-                currentPieces.remove((ChessPiece) captured);
+                //undoMove puts it back behind the target square
+                capturedPiece = captured;
 
             }
         }
@@ -122,41 +844,38 @@ public class ChessMatch {
         return capturedPiece;
     }
 
-    private void undoMove(Position start, Position target, Piece capturedPiece){
+    private void undoMove(Position start, Position target, Piece capturedPiece, boolean castling){
+        if(Metrics.ENABLED){
+            UNDOS.increment();
+        }
+        invalidateLegalMoves();
+        if(castling){
+            boolean kingSide = target.getColumn() > start.getColumn();
+            ChessPiece king = (ChessPiece) board.removePiece(Position.of(start.getRow(), kingSide ? 6 : 2));
+            ChessPiece rook = (ChessPiece) board.removePiece(Position.of(start.getRow(), kingSide ? 5 : 3));
+            board.placePiece(king, start);
+            board.placePiece(rook, target);
+            king.decreaseMoveCount();
+            rook.decreaseMoveCount();
+            return;
+        }
         ChessPiece p = (ChessPiece) board.removePiece(target);
         board.placePiece(p, start);
 
         if(capturedPiece != null){
             board.placePiece(capturedPiece, target);
-            currentPieces.add((ChessPiece) capturedPiece);
             capturedPieces.remove(capturedPiece);
         }
         p.decreaseMoveCount();
-        //Kingside Castling
-        if(p instanceof King && target.getColumn() == start.getColumn()+2){
-            Position startR = new Position(start.getRow(), start.getColumn()+3);
-            Position targetR = new Position(start.getRow(), start.getColumn()+1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetR);
-            board.placePiece(rook, startR);
-            rook.decreaseMoveCount();
-        }
-        //Queenside castling
-        if(p instanceof King && target.getColumn() == start.getColumn()-2){
-            Position startR = new Position(start.getRow(), start.getColumn()-4);
-            Position targetR = new Position(start.getRow(), start.getColumn()-1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetR);
-            board.placePiece(rook, startR);
-            rook.decreaseMoveCount();
-        }
         //special move en passant
         if(p instanceof Pawn){
             if(target.getColumn() != start.getColumn() && capturedPiece == enPassantVulnerable){
                 capturedPiece = board.removePiece(target);
                 Position pawnPosition;
                 if(p.getColor() == Color.WHITE) {
-                    pawnPosition = new Position(3, target.getColumn());
+                    pawnPosition = Position.of(3, target.getColumn());
                 }else{
-                    pawnPosition = new Position(4, target.getColumn());
+                    pawnPosition = Position.of(4, target.getColumn());
                 }
                 board.placePiece(capturedPiece, pawnPosition);
 
@@ -171,20 +890,29 @@ public class ChessMatch {
         if(((ChessPiece) board.piece(pos)).getColor() != currentPlayer){
             throw new ChessException("the chosen piece is not yours.");
         }
-        if(!board.piece(pos).isThereAnyPossibleMove()){
-            throw new ChessException("There is no possible moves for the chosen piece.");
+        int from = pos.getRow() * 8 + pos.getColumn();
+        int count = legalMoves();
+        for(int i=0; i<count; i++){
+            if(Move.from(legalMoves[i]) == from){
+                return;
+            }
         }
+        throw new ChessException("There is no possible moves for the chosen piece.");
     }
 
     private void validateTargetPosition(Position start, Position target){
-        if(!board.piece(start).possibleMove(target)){
-            throw new ChessException("The chosen Piece can't move to target position.");
+        if(isLegalMove(start.getRow() * 8 + start.getColumn(), target.getRow() * 8 + target.getColumn())){
+            return;
         }
+        if(board.piece(start).possibleMove(target)){
+            throw new ChessException("You can't put yourself in check");
+        }
+        throw new ChessException("The chosen Piece can't move to target position.");
     }
 
     private void placeNewPiece(char column, int row, ChessPiece piece){
-        board.placePiece(piece, new ChessPosition(column, row).toPosition());
-        currentPieces.add(piece);
+        invalidateLegalMoves();
+        board.placePiece(piece, ChessPosition.of(column, row).toPosition());
     }
 
     public ChessPiece replacePromotedPiece(String type){
@@ -194,60 +922,195 @@ public class ChessMatch {
         if(!type.equals("Q") && !type.equals("N") && !type.equals("R") && !type.equals("B")){
             return promoted;
         }
-        Position pos = promoted.getChessPosition().toPosition();
-        Piece p = board.removePiece(pos);
-        //noinspection SuspiciousMethodCalls
-        currentPieces.remove(p);
+        PromotionEvent event = Metrics.isRecording() ? new PromotionEvent() : null;
+        if(event != null){
+            event.begin();
+        }
+        invalidateLegalMoves();
+        Position pos = promoted.getPosition();
+        board.removePiece(pos);
         ChessPiece newPiece = newPiece(type, promoted.getColor());
         board.placePiece(newPiece, pos);
-        currentPieces.add(newPiece);
+        promoted = newPiece;
+        moves[ply - 1] = Move.of(Move.from(moves[ply - 1]), Move.to(moves[ply - 1]), type.charAt(0));
+        //the new piece may give a different check
+        check = testCheck(currentPlayer);
+        tablebaseResult = null;
+        testGameEnd();
+        if(event != null){
+            event.end();
+            if(event.shouldCommit()){
+                event.gameId = id;
+                event.ply = ply;
+                event.piece = type;
+                event.commit();
+            }
+        }
+        for(MatchListener listener: matchListeners){
+            listener.promotionChanged(this, moves[ply - 1]);
+        }
         return newPiece;
     }
 
+    private void placeFenPieces(String placement){
+        String[] ranks = placement.split("/");
+        if(ranks.length != 8){
+            throw new ChessException("Invalid FEN piece placement: " + placement);
+        }
+        for(int i=0; i<8; i++){
+            int column = 0;
+            for(char c: ranks[i].toCharArray()){
+                if(Character.isDigit(c)){
+                    column += c - '0';
+                    continue;
+                }
+                if(column > 7 || "KQRBNPkqrbnp".indexOf(c) < 0){
+                    throw new ChessException("Invalid FEN piece placement: " + placement);
+                }
+                Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+                String type = String.valueOf(Character.toUpperCase(c));
+                ChessPiece piece;
+                if(type.equals("K")) piece = new King(board, color, this);
+                else if(type.equals("P")) piece = new Pawn(board, color, this);
+                else piece = newPiece(type, color);
+                placeNewPiece((char) ('a' + column), 8 - i, piece);
+                column++;
+            }
+            if(column != 8){
+                throw new ChessException("Invalid FEN piece placement: " + placement);
+            }
+        }
+        for(Color color: Color.values()){
+            if(board.count(color, ChessBoard.KING) != 1){
+                throw new ChessException("Invalid FEN: there must be exactly one " + color + " king");
+            }
+            //the piece lists of one side are copied into buffers of 16, and a game never has more
+            if(board.count(color) > 16){
+                throw new ChessException("Invalid FEN: " + color + " has more than 16 pieces");
+            }
+        }
+    }
+
+    //pieces start unmoved, so mark the ones that can no longer castle or double step.
+    //KQkq is the outermost rook on that side of the king, X-FEN also names the rook by its file
+    private void setupMoveCounts(String castling){
+        boolean[] rights = new boolean[4];
+        for(char c: castling.toCharArray()){
+            if(c == '-'){
+                continue;
+            }
+            Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+            int row = color == Color.WHITE ? 7 : 0;
+            int king = board.kingSquare(color);
+            char letter = Character.toUpperCase(c);
+            int file;
+            if(letter == 'K' || letter == 'Q'){
+                file = outermostRook(row, color, letter == 'K');
+            }else if(letter >= 'A' && letter <= 'H'){
+                file = letter - 'A';
+                chess960 = true;
+            }else{
+                throw new ChessException("Invalid FEN castling rights: " + castling);
+            }
+            Piece rook = file < 0 ? null : board.piece(row, file);
+            if(king / 8 != row || !(rook instanceof Rook) || ((ChessPiece) rook).getColor() != color){
+                continue;
+            }
+            int right = (color == Color.WHITE ? 0 : 2) + (file > king % 8 ? 0 : 1);
+            rights[right] = true;
+            castlingFiles[right] = file;
+            chess960 |= king % 8 != 4 || (file != 0 && file != 7);
+        }
+        for(Color color: Color.values()){
+            int[] squares = new int[16];
+            int n = board.squares(color, squares);
+            for(int k=0; k<n; k++){
+                setupMoveCount((ChessPiece) board.piece(squares[k] / 8, squares[k] % 8), rights);
+            }
+        }
+    }
+
+    private void setupMoveCount(ChessPiece p, boolean[] rights){
+        Position pos = p.getPosition();
+        int first = p.getColor() == Color.WHITE ? 0 : 2;
+        boolean moved = false;
+        if(p instanceof Pawn){
+            moved = pos.getRow() != (p.getColor() == Color.WHITE ? 6 : 1);
+        }else if(p instanceof King){
+            moved = !rights[first] && !rights[first + 1];
+        }else if(p instanceof Rook){
+            int homeRow = p.getColor() == Color.WHITE ? 7 : 0;
+            boolean castles = false;
+            for(int right=first; right<first+2; right++){
+                castles |= rights[right] && pos.getRow() == homeRow && pos.getColumn() == castlingFiles[right];
+            }
+            moved = !castles;
+        }
+        if(moved){
+            p.increaseMoveCount();
+        }
+    }
+
+    private void setupEnPassant(String square){
+        int target = Move.parseSquare(square);
+        int row = target / 8 + (currentPlayer == Color.WHITE ? 1 : -1);
+        Piece p = board.piece(row, target % 8);
+        if(!(p instanceof Pawn) || ((ChessPiece) p).getColor() == currentPlayer){
+            throw new ChessException("Invalid FEN en passant square: " + square);
+        }
+        enPassantVulnerable = (ChessPiece) p;
+    }
+
     private ChessPiece newPiece(String type, Color color){
         if(type.equals("B")) return new Bishop(board, color);
         if(type.equals("Q")) return new Queen(board, color);
         if(type.equals("N")) return new Knight(board, color);
         return new Rook(board, color);
     }
-    public void initialSetup(){
-        //white
-        placeNewPiece('a', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('b', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('c', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('d', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('e', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('f', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('g', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('h', 2, new Pawn(board, Color.WHITE, this));
-        placeNewPiece('h', 6, new Pawn(board, Color.WHITE, this));
-
-        placeNewPiece('a', 1, new Rook(board, Color.WHITE));
-        placeNewPiece('b', 1, new Knight(board, Color.WHITE));
-        placeNewPiece('c', 1, new Bishop(board, Color.WHITE));
-        placeNewPiece('d', 1, new Queen(board, Color.WHITE));
-        placeNewPiece('e', 1, new King(board, Color.WHITE, this));
-        placeNewPiece('f', 1, new Bishop(board, Color.WHITE));
-        placeNewPiece('g', 1, new Knight(board, Color.WHITE));
-        placeNewPiece('h', 1, new Rook(board, Color.WHITE));
-
-        //black
-        placeNewPiece('a', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('b', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('c', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('d', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('e', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('f', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('g', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
-        placeNewPiece('a', 8, new Rook(board, Color.BLACK));
-        placeNewPiece('b', 8, new Knight(board, Color.BLACK));
-        placeNewPiece('c', 8, new Bishop(board, Color.BLACK));
-        placeNewPiece('d', 8, new Queen(board, Color.BLACK));
-        placeNewPiece('e', 8, new King(board, Color.BLACK, this));
-        placeNewPiece('f', 8, new Bishop(board, Color.BLACK));
-        placeNewPiece('g', 8, new Knight(board, Color.BLACK));
-        placeNewPiece('h', 8, new Rook(board, Color.BLACK));
+    //back rank of a Chess960 starting position from its number: the bishops on a light and a dark square,
+    //the queen on one of the six squares left, the knights on two of the five, and king between the rooks
+    private void initialSetup(int position){
+        char[] rank = new char[8];
+        int n = position;
+        rank[n % 4 * 2 + 1] = 'B';
+        n /= 4;
+        rank[n % 4 * 2] = 'B';
+        n /= 4;
+        placeOnEmpty(rank, 'Q', n % 6);
+        n /= 6;
+        int[] knights = KNIGHT_PLACEMENTS[n];
+        //the second knight is counted after the first is placed
+        placeOnEmpty(rank, 'N', knights[0]);
+        placeOnEmpty(rank, 'N', knights[1] - 1);
+        placeOnEmpty(rank, 'R', 0);
+        placeOnEmpty(rank, 'K', 0);
+        placeOnEmpty(rank, 'R', 0);
+        int king = new String(rank).indexOf('K');
+        for(int column=0; column<8; column++){
+            char file = (char) ('a' + column);
+            for(Color color: Color.values()){
+                String type = String.valueOf(rank[column]);
+                placeNewPiece(file, color == Color.WHITE ? 1 : 8, type.equals("K") ? new King(board, color, this) : newPiece(type, color));
+                placeNewPiece(file, color == Color.WHITE ? 2 : 7, new Pawn(board, color, this));
+            }
+            if(rank[column] == 'R'){
+                int right = column > king ? 0 : 1;
+                castlingFiles[right] = column;
+                castlingFiles[right + 2] = column;
+            }
+        }
+    }
+
+    //empty squares of the back rank, from the a-file, taken by the two knights
+    private static final int[][] KNIGHT_PLACEMENTS = {{0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 2}, {1, 3}, {1, 4}, {2, 3}, {2, 4}, {3, 4}};
+
+    private static void placeOnEmpty(char[] rank, char type, int index){
+        for(int column=0; column<8; column++){
+            if(rank[column] == 0 && index-- == 0){
+                rank[column] = type;
+                return;
+            }
+        }
     }
 
     public Color getCurrentPlayer() {
@@ -258,65 +1121,127 @@ public class ChessMatch {
         return turn;
     }
 
-    public List<ChessPiece> getCapturedPieces() {
-        return capturedPieces;
+    //plies since the last capture or pawn move
+    public int getHalfmoveClock() {
+        return halfmoveClock;
     }
 
-    private void nextTurn(){
-        turn++;
-        currentPlayer = (currentPlayer==Color.WHITE?Color.BLACK:Color.WHITE);
+    public List<ChessPiece> getCapturedPieces() {
+        return capturedPieces;
     }
 
     private Color getOpponent(Color color){
         return (color == Color.WHITE)?Color.BLACK:Color.WHITE;
     }
 
-    private ChessPiece getKing(Color color){
-        List<Piece> list = currentPieces.stream().filter(x -> x.getColor() == color).collect(Collectors.toList());
-        for(Piece p:list){
-            if(p instanceof King){
-                return (ChessPiece) p;
-            }
+    private boolean testCheck(Color color){
+        if(!Metrics.ENABLED){
+            return isKingAttacked(color);
         }
-        throw new IllegalStateException("There is no "+ color + " king on the board");
+        long start = System.nanoTime();
+        boolean attacked = isKingAttacked(color);
+        CHECK_TIME.record(System.nanoTime() - start);
+        return attacked;
     }
 
-    private boolean testCheck(Color color){
-        Position kingPosition = getKing(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = currentPieces.stream().filter(x-> x.getColor() == getOpponent(color)).collect(Collectors.toList());
-        for(Piece p:opponentPieces){
-            boolean[][] mat = p.possibleMoves();
-            if(mat[kingPosition.getRow()][kingPosition.getColumn()]){
+    private boolean isKingAttacked(Color color){
+        return isAttacked(board.kingSquare(color), getOpponent(color));
+    }
+
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    //whether a piece of the given color attacks the square, walking out from it instead of generating moves
+    private boolean isAttacked(int square, Color by){
+        int row = square / 8;
+        int column = square % 8;
+        //white pawns attack upwards, so they stand on the row below
+        int pawnRow = row + (by == Color.WHITE ? 1 : -1);
+        if(isPiece(pawnRow, column - 1, by, 'P') || isPiece(pawnRow, column + 1, by, 'P')){
+            return true;
+        }
+        for(int[] step: KNIGHT_STEPS){
+            if(isPiece(row + step[0], column + step[1], by, 'N')){
+                return true;
+            }
+        }
+        for(int[] step: KING_STEPS){
+            if(isPiece(row + step[0], column + step[1], by, 'K')){
+                return true;
+            }
+            //the first piece met along the line, straight for rooks and diagonal for bishops
+            int r = row + step[0];
+            int c = column + step[1];
+            while(board.positionExists(r, c) && board.piece(r, c) == null){
+                r += step[0];
+                c += step[1];
+            }
+            char slider = step[0] == 0 || step[1] == 0 ? 'R' : 'B';
+            if(isPiece(r, c, by, slider) || isPiece(r, c, by, 'Q')){
                 return true;
             }
         }
         return false;
     }
 
-    private boolean testCheckmate(Color color){
-        if(!testCheck(color)){
+    private boolean isPiece(int row, int column, Color color, char type){
+        if(!board.positionExists(row, column)){
             return false;
         }
-        List<Piece> list = currentPieces.stream().filter(x-> x.getColor() == color).collect(Collectors.toList());
-        for(Piece p: list){
-            boolean[][] mat = p.possibleMoves();
-            for(int i=0;i<board.getRows();i++){
-                for(int j=0;j<board.getColumns();j++){
-                    if(mat[i][j]){
-                        Position start = ((ChessPiece)p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece captured = makeMove(start, target);
-                        boolean test = testCheck(color);
-                        undoMove(start, target, captured);
-                        if(!test){
-                            return false;
-                        }
+        ChessPiece p = (ChessPiece) board.piece(row, column);
+        return p != null && p.getColor() == color && p.toString().charAt(0) == type;
+    }
 
-                    }
-                }
+    private void testGameEnd(){
+        if(!Metrics.ENABLED){
+            findGameEnd();
+            return;
+        }
+        long start = System.nanoTime();
+        findGameEnd();
+        GAME_END_TIME.record(System.nanoTime() - start);
+    }
+
+    private void findGameEnd(){
+        //a position found again after replacePromotedPiece must not keep what was found for the queen
+        stalemate = false;
+        insufficientMaterial = false;
+        repetition = false;
+        tablebaseResult = null;
+        //fills the cache the next move is validated against
+        boolean noMoves = legalMoves() == 0;
+        checkmate = check && noMoves;
+        if(checkmate){
+            return;
+        }
+        insufficientMaterial = testInsufficientMaterial();
+        stalemate = !insufficientMaterial && noMoves;
+        repetition = repetitions(2) >= 2;
+        if(tablebases != null && !insufficientMaterial && !stalemate && !repetition){
+            tablebaseResult = tablebases.probeWdl(this);
+        }
+    }
+
+    //K vs K, K+minor vs K, and kings with bishops that all stand on the same square color
+    private boolean testInsufficientMaterial(){
+        int knights = 0;
+        int bishops = 0;
+        int bishopSquareColors = 0;
+        for(Color color: Color.values()){
+            if(board.count(color, ChessBoard.PAWN) + board.count(color, ChessBoard.ROOK) + board.count(color, ChessBoard.QUEEN) > 0){
+                return false;
+            }
+            knights += board.count(color, ChessBoard.KNIGHT);
+            for(int i=0; i<board.count(color, ChessBoard.BISHOP); i++){
+                int square = board.square(color, ChessBoard.BISHOP, i);
+                bishops++;
+                bishopSquareColors |= 1 << ((square / 8 + square % 8) % 2);
             }
         }
-        return true;
+        if(knights + bishops <= 1){
+            return true;
+        }
+        return knights == 0 && bishopSquareColors != 3;
     }
 
     public boolean isCheck() {
@@ -327,6 +1252,54 @@ public class ChessMatch {
         return !checkmate;
     }
 
+    public boolean isStalemate() {
+        return stalemate;
+    }
+
+    public boolean isInsufficientMaterial() {
+        return insufficientMaterial;
+    }
+
+    //the same position for the third time with the same player to move
+    public boolean isThreefoldRepetition() {
+        return repetition;
+    }
+
+    //the player who gave checkmate, null while the game isn't won
+    public Color getWinner() {
+        return checkmate ? getOpponent(currentPlayer) : null;
+    }
+
+    public boolean isTablebaseDraw() {
+        return tablebaseResult == Wdl.DRAW;
+    }
+
+    //result for the player to move, null when no local table covers the position
+    public Wdl getTablebaseResult() {
+        return tablebaseResult;
+    }
+
+    //null removes the listener
+    public void setBoardListener(BoardListener listener) {
+        board.setListener(listener);
+    }
+
+    public void addMatchListener(MatchListener listener) {
+        matchListeners.add(listener);
+    }
+
+    public void removeMatchListener(MatchListener listener) {
+        matchListeners.remove(listener);
+    }
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public boolean isGameOver() {
+        return checkmate || stalemate || insufficientMaterial || repetition || isTablebaseDraw();
+    }
+
     public ChessPiece getEnPassantVulnerable() {
         return enPassantVulnerable;
     }
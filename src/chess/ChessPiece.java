@@ -22,6 +22,19 @@ public abstract class ChessPiece extends Piece {
         return p != null && p.getColor() != color;
     }
 
+    protected boolean isThereOpponentPiece(int row, int column){
+        ChessPiece p = (ChessPiece) getBoard().piece(row, column);
+        return p != null && p.getColor() != color;
+    }
+
+    Position getPosition(){
+        return position;
+    }
+
+    boolean isOnBoard(){
+        return position != null;
+    }
+
     public Color getColor() {
         return color;
     }
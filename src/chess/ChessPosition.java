@@ -3,8 +3,17 @@ package chess;
 import boardgame.Position;
 
 public class ChessPosition {
-    private char column;
-    private int row;
+    //the 64 squares indexed like Position rows and columns, a8 first
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for(int i=0; i<SQUARES.length; i++){
+            SQUARES[i] = new ChessPosition((char) ('a' + i % 8), 8 - i / 8);
+        }
+    }
+
+    private final char column;
+    private final int row;
 
     public ChessPosition(char column, int row) {
         if(column<'a' || column >'h' || row<1 || row>8){
@@ -22,12 +31,23 @@ public class ChessPosition {
         return row;
     }
 
+    public static ChessPosition of(char column, int row){
+        if(column<'a' || column >'h' || row<1 || row>8){
+            throw new ChessException("Error instantiating ChessPosition. Valid values are from a1 to h8");
+        }
+        return SQUARES[(8-row) * 8 + column-'a'];
+    }
+
     protected Position toPosition(){
-        return new Position(8-row, column-'a');
+        return Position.of(8-row, column-'a');
     }
 
     protected static ChessPosition fromPosition(Position pos){
-        return new ChessPosition((char) (pos.getColumn()+'a'), 8-pos.getRow());
+        return SQUARES[pos.getRow() * 8 + pos.getColumn()];
+    }
+
+    static ChessPosition fromSquare(int square){
+        return SQUARES[square];
     }
 
     @Override
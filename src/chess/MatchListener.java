@@ -0,0 +1,11 @@
+package chess;
+
+//told about the moves of the game, not about the ones a search plays and takes back.
+//called on the thread playing the match, so implementations should return quickly
+public interface MatchListener {
+    //captured is the piece the move took, or null
+    void movePerformed(ChessMatch match, int move, ChessPiece captured);
+
+    //the pawn promoted by the last move became another piece than a queen
+    void promotionChanged(ChessMatch match, int move);
+}
@@ -0,0 +1,66 @@
+package chess;
+
+//moves packed in an int: start square, target square and promotion type
+//squares are row * 8 + column as in boardgame.Position, so a8 is 0 and h1 is 63
+public final class Move {
+    public static final int NONE = 0;
+    private static final String PROMOTIONS = " QRBN";
+
+    private Move() {
+    }
+
+    public static int of(int from, int to){
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, char promotion){
+        int type = PROMOTIONS.indexOf(Character.toUpperCase(promotion));
+        if(type < 1){
+            throw new ChessException("Invalid promotion type: " + promotion);
+        }
+        return of(from, to) | (type << 12);
+    }
+
+    public static int from(int move){
+        return move & 63;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 63;
+    }
+
+    public static boolean isPromotion(int move){
+        return (move >>> 12) != 0;
+    }
+
+    //Q, R, B or N
+    public static char promotion(int move){
+        return PROMOTIONS.charAt(move >>> 12);
+    }
+
+    public static String square(int square){
+        return "" + (char) ('a' + square % 8) + (8 - square / 8);
+    }
+
+    public static int parseSquare(String s){
+        if(s.length() != 2 || s.charAt(0) < 'a' || s.charAt(0) > 'h' || s.charAt(1) < '1' || s.charAt(1) > '8'){
+            throw new ChessException("Invalid square: " + s);
+        }
+        return (8 - (s.charAt(1) - '0')) * 8 + (s.charAt(0) - 'a');
+    }
+
+    //coordinate notation, e.g. e2e4 or e7e8q
+    public static String toString(int move){
+        String s = square(from(move)) + square(to(move));
+        return isPromotion(move) ? s + Character.toLowerCase(promotion(move)) : s;
+    }
+
+    public static int parse(String s){
+        if(s.length() != 4 && s.length() != 5){
+            throw new ChessException("Invalid move: " + s);
+        }
+        int from = parseSquare(s.substring(0, 2));
+        int to = parseSquare(s.substring(2, 4));
+        return s.length() == 5 ? of(from, to, s.charAt(4)) : of(from, to);
+    }
+}
@@ -0,0 +1,36 @@
+package chess;
+
+import java.util.Random;
+
+//fixed-seed random keys, so position keys stay the same across runs and can be stored in files
+final class Zobrist {
+    static final long[][] PIECES = new long[12][64];
+    static final long[] CASTLING = new long[4];
+    static final long[] EN_PASSANT = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(0x43686573734761L);
+        for(long[] piece: PIECES){
+            for(int sq=0; sq<64; sq++){
+                piece[sq] = random.nextLong();
+            }
+        }
+        for(int i=0; i<CASTLING.length; i++){
+            CASTLING[i] = random.nextLong();
+        }
+        for(int i=0; i<EN_PASSANT.length; i++){
+            EN_PASSANT[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    //KQRBNP for white then black
+    static int pieceIndex(ChessPiece piece){
+        int type = "KQRBNP".indexOf(piece.toString());
+        return piece.getColor() == Color.WHITE ? type : type + 6;
+    }
+}
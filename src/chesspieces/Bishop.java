@@ -1,7 +1,6 @@
 package chesspieces;
 
 import boardgame.Board;
-import boardgame.Position;
 import chess.ChessPiece;
 import chess.Color;
 
@@ -18,46 +17,55 @@ public class Bishop extends ChessPiece{
     @Override
     public boolean[][] possibleMoves() {
         boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0,0);
+        int r;
+        int c;
 
         //nw
-        p.setvalues(position.getRow() - 1, position.getColumn()-1);
-        while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setvalues(p.getRow() - 1, p.getColumn()-1);
+        r = position.getRow() - 1;
+        c = position.getColumn()-1;
+        while(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+            mat[r][c] = true;
+            r--;
+            c--;
         }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+            mat[r][c] = true;
         }
 
         //ne
-        p.setvalues(position.getRow() - 1, position.getColumn() + 1);
-        while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setvalues(p.getRow() - 1, p.getColumn() + 1);
+        r = position.getRow() - 1;
+        c = position.getColumn() + 1;
+        while(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+            mat[r][c] = true;
+            r--;
+            c++;
         }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+            mat[r][c] = true;
         }
 
         //sw
-        p.setvalues(position.getRow() + 1, position.getColumn() - 1);
-        while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setvalues(p.getRow() + 1, p.getColumn() - 1);
+        r = position.getRow() + 1;
+        c = position.getColumn() - 1;
+        while(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+            mat[r][c] = true;
+            r++;
+            c--;
         }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+            mat[r][c] = true;
         }
 
         //se
-        p.setvalues(position.getRow() + 1, position.getColumn() + 1);
-        while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setvalues(p.getRow() + 1, p.getColumn() + 1);
+        r = position.getRow() + 1;
+        c = position.getColumn() + 1;
+        while(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+            mat[r][c] = true;
+            r++;
+            c++;
         }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+            mat[r][c] = true;
         }
 
 
@@ -1,7 +1,6 @@
 package chesspieces;
 
 import boardgame.Board;
-import boardgame.Position;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
@@ -18,90 +17,76 @@ public class King extends ChessPiece {
         return "K";
     }
 
-    private boolean canMove(Position pos){
-        ChessPiece p = (ChessPiece) getBoard().piece(pos);
+    private boolean canMove(int row, int column){
+        ChessPiece p = (ChessPiece) getBoard().piece(row, column);
         return p == null || p.getColor() != getColor();
     }
 
-    private boolean rookCanCastling(Position pos){
-        ChessPiece p = (ChessPiece) getBoard().piece(pos);
-        return p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
-    }
-
     @Override
     public boolean[][] possibleMoves() {
         boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0,0);
+        int r;
+        int c;
 
         //above
-        p.setvalues(position.getRow() - 1, position.getColumn());
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() - 1;
+        c = position.getColumn();
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //below
-        p.setvalues(position.getRow() + 1, position.getColumn());
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 1;
+        c = position.getColumn();
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //left
-        p.setvalues(position.getRow(), position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow();
+        c = position.getColumn()-1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //right
-        p.setvalues(position.getRow(), position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow();
+        c = position.getColumn()+1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //left upper diagonal
-        p.setvalues(position.getRow() + 1, position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 1;
+        c = position.getColumn()-1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //right upper diagonal
-        p.setvalues(position.getRow() + 1, position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 1;
+        c = position.getColumn()+1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //left below diagonal
-        p.setvalues(position.getRow() - 1, position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() - 1;
+        c = position.getColumn()-1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         //right below diagonal
-        p.setvalues(position.getRow() - 1, position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() - 1;
+        c = position.getColumn()+1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        //special move Castling
-        if(getMoveCount()==0 && !match.isCheck()){
-            //Kingside castling
-            Position posT1 = new Position(position.getRow(), position.getColumn()+3);
-            if(rookCanCastling(posT1)){
-                Position p1 = new Position(position.getRow(), position.getColumn()+1);
-                Position p2 = new Position(position.getRow(), position.getColumn()+2);
-                if(getBoard().piece(p1) == null && getBoard().piece(p2) == null){
-                    mat[position.getRow()][position.getColumn()+2] = true;
-                }
-            }
-            //Queenside castling
-            Position posT2 = new Position(position.getRow(), position.getColumn()-4);
-            if(rookCanCastling(posT2)){
-                Position p1 = new Position(position.getRow(), position.getColumn()-1);
-                Position p2 = new Position(position.getRow(), position.getColumn()-2);
-                Position p3 = new Position(position.getRow(), position.getColumn()-3);
-                if(getBoard().piece(p1) == null && getBoard().piece(p2) == null && getBoard().piece(p3) == null){
-                    mat[position.getRow()][position.getColumn()-2] = true;
-                }
-            }
+        //special move Castling, marked on the square of the rook
+        if(getMoveCount()==0){
+            match.addCastlingMoves(getColor(), mat);
         }
 
         return mat;
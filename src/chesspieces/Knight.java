@@ -1,7 +1,6 @@
 package chesspieces;
 
 import boardgame.Board;
-import boardgame.Position;
 import chess.ChessPiece;
 import chess.Color;
 
@@ -16,54 +15,63 @@ public class Knight extends ChessPiece {
         return "N";
     }
 
-    private boolean canMove(Position pos){
-        ChessPiece p = (ChessPiece) getBoard().piece(pos);
+    private boolean canMove(int row, int column){
+        ChessPiece p = (ChessPiece) getBoard().piece(row, column);
         return p == null || p.getColor() != getColor();
     }
 
     @Override
     public boolean[][] possibleMoves() {
         boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0,0);
+        int r;
+        int c;
 
-        p.setvalues(position.getRow() - 1, position.getColumn()-2);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() - 1;
+        c = position.getColumn()-2;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow() + 1, position.getColumn()-2);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 1;
+        c = position.getColumn()-2;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow()-2, position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow()-2;
+        c = position.getColumn()-1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow()-2, position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow()-2;
+        c = position.getColumn()+1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow() + 2, position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 2;
+        c = position.getColumn()-1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow() + 2, position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 2;
+        c = position.getColumn()+1;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow() - 1, position.getColumn()+2);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() - 1;
+        c = position.getColumn()+2;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
-        p.setvalues(position.getRow() + 1, position.getColumn()+2);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
+        r = position.getRow() + 1;
+        c = position.getColumn()+2;
+        if(getBoard().positionExists(r, c) && canMove(r, c)){
+            mat[r][c] = true;
         }
 
         return mat;
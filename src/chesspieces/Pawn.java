@@ -1,13 +1,10 @@
 package chesspieces;
 
 import boardgame.Board;
-import boardgame.Position;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
 
-import java.sql.Array;
-
 public class Pawn extends ChessPiece {
     ChessMatch match;
     public Pawn(Board board, Color color, ChessMatch match) {
@@ -18,63 +15,72 @@ public class Pawn extends ChessPiece {
     @Override
     public boolean[][] possibleMoves() {
         boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
+        int r;
+        int c;
         if(getColor() == Color.WHITE){
-            p.setvalues(position.getRow()-1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()-1;
+            c = position.getColumn();
+            if(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()-2, position.getColumn());
-            Position p2 = new Position(position.getRow()-1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()-2;
+            c = position.getColumn();
+            if (getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c) && !getBoard().thereIsAPiece(position.getRow()-1, c) && getMoveCount() == 0){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()-1, position.getColumn()-1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()-1;
+            c = position.getColumn()-1;
+            if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()-1, position.getColumn()+1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()-1;
+            c = position.getColumn()+1;
+            if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+                mat[r][c] = true;
             }
             //special move en passant
             if(position.getRow() == 3){
-                Position left = new Position(position.getRow(), position.getColumn()-1);
-                if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == match.getEnPassantVulnerable()){
-                    mat[left.getRow()-1][left.getColumn()] = true;
+                r = position.getRow();
+                c = position.getColumn()-1;
+                if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c) && getBoard().piece(r, c) == match.getEnPassantVulnerable()){
+                    mat[r-1][c] = true;
                 }
-                Position right = new Position(position.getRow(), position.getColumn()+1);
-                if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == match.getEnPassantVulnerable()){
-                    mat[right.getRow()-1][right.getColumn()] = true;
+                c = position.getColumn()+1;
+                if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c) && getBoard().piece(r, c) == match.getEnPassantVulnerable()){
+                    mat[r-1][c] = true;
                 }
             }
         }else{
-            p.setvalues(position.getRow()+1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()+1;
+            c = position.getColumn();
+            if(getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c)){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()+2, position.getColumn());
-            Position p2 = new Position(position.getRow()+1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()+2;
+            c = position.getColumn();
+            if (getBoard().positionExists(r, c) && !getBoard().thereIsAPiece(r, c) && !getBoard().thereIsAPiece(position.getRow()+1, c) && getMoveCount() == 0){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()+1, position.getColumn()-1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()+1;
+            c = position.getColumn()-1;
+            if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+                mat[r][c] = true;
             }
-            p.setvalues(position.getRow()+1, position.getColumn()+1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            r = position.getRow()+1;
+            c = position.getColumn()+1;
+            if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c)){
+                mat[r][c] = true;
             }
             //special move en passant
             if(position.getRow() == 4){
-                Position left = new Position(position.getRow(), position.getColumn()-1);
-                if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == match.getEnPassantVulnerable()){
-                    mat[left.getRow()+1][left.getColumn()] = true;
+                r = position.getRow();
+                c = position.getColumn()-1;
+                if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c) && getBoard().piece(r, c) == match.getEnPassantVulnerable()){
+                    mat[r+1][c] = true;
                 }
-                Position right = new Position(position.getRow(), position.getColumn()+1);
-                if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == match.getEnPassantVulnerable()){
-                    mat[right.getRow()+1][right.getColumn()] = true;
+                c = position.getColumn()+1;
+                if(getBoard().positionExists(r, c) && isThereOpponentPiece(r, c) && getBoard().piece(r, c) == match.getEnPassantVulnerable()){
+                    mat[r+1][c] = true;
                 }
             }
 
@@ -82,6 +88,24 @@ public class Pawn extends ChessPiece {
         return mat;
     }
 
+    //pawns only move forward, so they go back one or two squares and never onto their back rank
+    @Override
+    public boolean[][] possibleUnmoves() {
+        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+        int direction = getColor() == Color.WHITE ? 1 : -1;
+        int backRank = getColor() == Color.WHITE ? 7 : 0;
+        int doubleStepRow = getColor() == Color.WHITE ? 4 : 3;
+        int r = position.getRow() + direction;
+        int c = position.getColumn();
+        if(r != backRank && !getBoard().thereIsAPiece(r, c)){
+            mat[r][c] = true;
+            if(position.getRow() == doubleStepRow && !getBoard().thereIsAPiece(r + direction, c)){
+                mat[r + direction][c] = true;
+            }
+        }
+        return mat;
+    }
+
     @Override
     public String toString(){
         return "P";
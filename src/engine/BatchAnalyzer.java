@@ -0,0 +1,209 @@
+package engine;
+
+import cache.PositionCache;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import tablebase.Tablebases;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//analyzes one FEN per input line on a pool of workers, each with its own search and hash table,
+//and writes tab separated results as they finish: line, best move, score, depth, nodes, milliseconds, fen
+public class BatchAnalyzer {
+    private static final Task END = new Task(0, null);
+
+    private final int threads;
+    private final int hashMegabytes;
+    private final SearchLimits limits;
+    private Tablebases tablebases;
+    private PositionCache cache;
+    private PrintStream progress;
+    private long progressIntervalMillis = 10_000;
+
+    private final AtomicLong analyzed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong nodes = new AtomicLong();
+
+    public BatchAnalyzer(int threads, int hashMegabytes, SearchLimits limits) {
+        if(threads < 1){
+            throw new IllegalArgumentException("There must be at least 1 thread");
+        }
+        this.threads = threads;
+        this.hashMegabytes = hashMegabytes;
+        this.limits = limits;
+    }
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    //repeated positions are answered from the cache, which the workers share
+    public void setCache(PositionCache cache) {
+        this.cache = cache;
+    }
+
+    public void setProgress(PrintStream progress, long intervalMillis) {
+        this.progress = progress;
+        this.progressIntervalMillis = intervalMillis;
+    }
+
+    //returns the number of positions analyzed
+    public long run(Path input, Path output){
+        BlockingQueue<Task> tasks = new ArrayBlockingQueue<>(threads * 64);
+        long start = System.currentTimeMillis();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        //set by the first worker that fails to write; nothing takes tasks after that, so every thread is stopped
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> workers = new CopyOnWriteArrayList<>();
+        Thread caller = Thread.currentThread();
+        try(BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+            BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)){
+            for(int i=0; i<threads; i++){
+                workers.add(new Thread(() -> {
+                    try {
+                        work(tasks, writer);
+                    } catch (RuntimeException e) {
+                        if(failure.compareAndSet(null, e)){
+                            caller.interrupt();
+                            workers.forEach(Thread::interrupt);
+                        }
+                    }
+                }, "batch-worker-" + i));
+            }
+            workers.forEach(Thread::start);
+            reporter.scheduleAtFixedRate(() -> report(writer, start), progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+            String line;
+            long lineNumber = 0;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                line = line.trim();
+                if(!line.isEmpty() && !line.startsWith("#")){
+                    tasks.put(new Task(lineNumber, line));
+                }
+            }
+            for(int i=0; i<threads; i++){
+                tasks.put(END);
+            }
+            for(Thread worker: workers){
+                worker.join();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            //the workers would wait forever on a queue nobody fills any more
+            workers.forEach(Thread::interrupt);
+            if(failure.get() == null){
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        if(failure.get() != null){
+            //the interrupt came from a worker, not from the caller
+            Thread.interrupted();
+            throw failure.get();
+        }
+        report(null, start);
+        return analyzed.get();
+    }
+
+    private void work(BlockingQueue<Task> tasks, BufferedWriter writer){
+        TranspositionTable table = new TranspositionTable(hashMegabytes);
+        Search search = new Search(table);
+        search.setTablebases(tablebases);
+        try {
+            Task task;
+            while((task = tasks.take()) != END){
+                String result;
+                try {
+                    String fen = toFen(task.fen);
+                    table.newSearch();
+                    search.resetNodes();
+                    SearchResult r = cache != null ? cache.analyze(fen, limits, search) : search.search(new ChessMatch(fen), limits);
+                    //none for an answer from the cache
+                    nodes.addAndGet(search.getNodes());
+                    analyzed.incrementAndGet();
+                    String score = r.isMate() ? "mate " + r.getMateIn() : "cp " + r.getScore();
+                    String move = r.getBestMove() == Move.NONE ? "(none)" : new ChessMatch(fen).toUci(r.getBestMove());
+                    result = task.line + "\t" + move + "\t" + score + "\t" + r.getDepth() + "\t" + r.getNodes() + "\t" + r.getTimeMillis() + "\t" + task.fen;
+                } catch (RuntimeException e) {
+                    //a bad FEN, or anything else going wrong with one position, must not stop the worker:
+                    //with a single worker the reader would wait on a full queue forever
+                    failed.incrementAndGet();
+                    String message = e instanceof ChessException ? e.getMessage() : e.toString();
+                    result = task.line + "\terror\t" + message + "\t\t\t\t" + task.fen;
+                }
+                synchronized (writer){
+                    writer.write(result);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //EPD lines carry operations instead of the move counters
+    static String toFen(String line){
+        String[] fields = line.split("\\s+");
+        int n = Math.min(fields.length, 4);
+        while(n < Math.min(fields.length, 6) && fields[n].matches("\\d+")){
+            n++;
+        }
+        return String.join(" ", Arrays.copyOf(fields, n));
+    }
+
+    private void report(BufferedWriter writer, long start){
+        if(writer != null){
+            synchronized (writer){
+                try {
+                    writer.flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if(progress == null){
+            return;
+        }
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        progress.printf("%d analyzed, %d failed, %.1f positions/s, %.0f nodes/s", analyzed.get(), failed.get(), analyzed.get() / seconds, nodes.get() / seconds);
+        if(cache != null){
+            progress.printf(", cache hit rate %.1f%%", cache.getAnalysisCache().getHitRate() * 100);
+        }
+        progress.println();
+    }
+
+    private static final class Task {
+        private final long line;
+        private final String fen;
+
+        Task(long line, String fen) {
+            this.line = line;
+            this.fen = fen;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+
+//material and piece-square tables, tables are written from white's side with a8 first
+public class Evaluation {
+    static final String TYPES = "PNBRQK";
+    static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    static final int[][] TABLES = {
+            {
+                     0,  0,  0,  0,  0,  0,  0,  0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                     5,  5, 10, 25, 25, 10,  5,  5,
+                     0,  0,  0, 20, 20,  0,  0,  0,
+                     5, -5,-10,  0,  0,-10, -5,  5,
+                     5, 10, 10,-20,-20, 10, 10,  5,
+                     0,  0,  0,  0,  0,  0,  0,  0
+            },
+            {
+                   -50,-40,-30,-30,-30,-30,-40,-50,
+                   -40,-20,  0,  0,  0,  0,-20,-40,
+                   -30,  0, 10, 15, 15, 10,  0,-30,
+                   -30,  5, 15, 20, 20, 15,  5,-30,
+                   -30,  0, 15, 20, 20, 15,  0,-30,
+                   -30,  5, 10, 15, 15, 10,  5,-30,
+                   -40,-20,  0,  5,  5,  0,-20,-40,
+                   -50,-40,-30,-30,-30,-30,-40,-50
+            },
+            {
+                   -20,-10,-10,-10,-10,-10,-10,-20,
+                   -10,  0,  0,  0,  0,  0,  0,-10,
+                   -10,  0,  5, 10, 10,  5,  0,-10,
+                   -10,  5,  5, 10, 10,  5,  5,-10,
+                   -10,  0, 10, 10, 10, 10,  0,-10,
+                   -10, 10, 10, 10, 10, 10, 10,-10,
+                   -10,  5,  0,  0,  0,  0,  5,-10,
+                   -20,-10,-10,-10,-10,-10,-10,-20
+            },
+            {
+                     0,  0,  0,  0,  0,  0,  0,  0,
+                     5, 10, 10, 10, 10, 10, 10,  5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                     0,  0,  0,  5,  5,  0,  0,  0
+            },
+            {
+                   -20,-10,-10, -5, -5,-10,-10,-20,
+                   -10,  0,  0,  0,  0,  0,  0,-10,
+                   -10,  0,  5,  5,  5,  5,  0,-10,
+                    -5,  0,  5,  5,  5,  5,  0, -5,
+                     0,  0,  5,  5,  5,  5,  0, -5,
+                   -10,  5,  5,  5,  5,  5,  0,-10,
+                   -10,  0,  5,  0,  0,  0,  0,-10,
+                   -20,-10,-10, -5, -5,-10,-10,-20
+            },
+            {
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -20,-30,-30,-40,-40,-30,-30,-20,
+                   -10,-20,-20,-20,-20,-20,-20,-10,
+                    20, 20,  0,  0,  0,  0, 20, 20,
+                    20, 30, 10,  0,  0, 10, 30, 20
+            }
+    };
+
+    //centipawns for the side to move
+    public int evaluate(ChessMatch match){
+        int score = 0;
+        for(int sq=0; sq<64; sq++){
+            ChessPiece p = match.pieceAt(sq);
+            if(p == null){
+                continue;
+            }
+            int type = typeOf(p);
+            if(p.getColor() == Color.WHITE){
+                score += VALUES[type] + TABLES[type][sq];
+            }else{
+                score -= VALUES[type] + TABLES[type][(7 - sq / 8) * 8 + sq % 8];
+            }
+        }
+        return match.getCurrentPlayer() == Color.WHITE ? score : -score;
+    }
+
+    //piece values of the side to move minus those of the opponent
+    public static int material(ChessMatch match){
+        int score = 0;
+        for(int sq=0; sq<64; sq++){
+            ChessPiece p = match.pieceAt(sq);
+            if(p != null){
+                score += p.getColor() == match.getCurrentPlayer() ? VALUES[typeOf(p)] : -VALUES[typeOf(p)];
+            }
+        }
+        return score;
+    }
+
+    static int typeOf(ChessPiece p){
+        return TYPES.indexOf(p.toString().charAt(0));
+    }
+}
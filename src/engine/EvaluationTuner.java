@@ -0,0 +1,326 @@
+package engine;
+
+import book.PgnGame;
+import book.PgnReader;
+import chess.ChessException;
+import chess.ChessMatch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+//Texel tuning of the material and piece-square values: fits a sigmoid of the evaluation to the results of
+//quiet positions. Positions are packed piece lists, error and gradient are summed in chunks on a fork/join pool
+public class EvaluationTuner {
+    private static final int BATCH = 1 << 16;
+    private static final int CHUNK = 1 << 13;
+    //6 piece values, then the 64 squares of each table
+    private static final int PARAMETERS = 6 + 6 * 64;
+    //positions early in a game say little about its result
+    private static final int SKIPPED_PLIES = 8;
+
+    private final ForkJoinPool pool;
+    //each piece is black << 9 | type * 64 + square seen from its own side, a8 = 0
+    private short[] pieces = new short[BATCH * 32];
+    //the pieces of position i are from offsets[i] to offsets[i + 1]
+    private int[] offsets = new int[BATCH + 1];
+    //half points for white
+    private byte[] results = new byte[BATCH];
+    private int size;
+    private long rejected;
+
+    private final double[] parameters = new double[PARAMETERS];
+    private double scale = 1;
+    //Adam moments
+    private final double[] mean = new double[PARAMETERS];
+    private final double[] variance = new double[PARAMETERS];
+    private int steps;
+
+    public EvaluationTuner(int threads) {
+        pool = new ForkJoinPool(threads);
+        for(int t=0; t<6; t++){
+            parameters[t] = Evaluation.VALUES[t];
+            for(int sq=0; sq<64; sq++){
+                parameters[6 + t * 64 + sq] = Evaluation.TABLES[t][sq];
+            }
+        }
+    }
+
+    //FEN or EPD lines ending with the result (1-0, 0-1, 1/2-1/2 or 1.0, 0.5, 0.0), or every position of the games of a .pgn file
+    public void load(Path file){
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)){
+            String[] batch = new String[BATCH];
+            int n = 0;
+            if(file.getFileName().toString().endsWith(".pgn")){
+                PgnReader pgn = new PgnReader(reader);
+                PgnGame game;
+                while((game = pgn.next()) != null){
+                    for(String line: positionsOf(game)){
+                        batch[n++] = line;
+                        if(n == BATCH){
+                            addBatch(batch, n);
+                            n = 0;
+                        }
+                    }
+                }
+            }else{
+                String line;
+                while((line = reader.readLine()) != null){
+                    batch[n++] = line;
+                    if(n == BATCH){
+                        addBatch(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            addBatch(batch, n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //quiet positions of a finished game, labeled with its result
+    private static String[] positionsOf(PgnGame game){
+        String result = game.getResult();
+        if(!result.equals("1-0") && !result.equals("0-1") && !result.equals("1/2-1/2")){
+            return new String[0];
+        }
+        String fen = game.getTags().get("FEN");
+        String[] lines = new String[game.getMoves().size()];
+        int n = 0;
+        try {
+            ChessMatch match = fen == null ? new ChessMatch() : new ChessMatch(fen);
+            for(String san: game.getMoves()){
+                match.performChessMove(match.parseSan(san));
+                if(match.getPly() > SKIPPED_PLIES && !match.isCheck()){
+                    lines[n++] = match.getFen() + " " + result;
+                }
+            }
+        } catch (ChessException e) {
+            //keeps the positions before the illegal move
+        }
+        return Arrays.copyOf(lines, n);
+    }
+
+    private void addBatch(String[] batch, int n){
+        short[][] parsed = new short[n][];
+        byte[] points = new byte[n];
+        run(() -> {
+            IntStream.range(0, n).parallel().forEach(i -> {
+                points[i] = parseResult(batch[i]);
+                parsed[i] = points[i] < 0 ? null : parsePieces(batch[i]);
+            });
+            return null;
+        });
+        for(int i=0; i<n; i++){
+            if(parsed[i] == null){
+                String line = batch[i].trim();
+                if(!line.isEmpty() && !line.startsWith("#")){
+                    rejected++;
+                }
+                continue;
+            }
+            if(size + 1 >= results.length){
+                results = Arrays.copyOf(results, results.length * 2);
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            int start = offsets[size];
+            if(start + parsed[i].length > pieces.length){
+                pieces = Arrays.copyOf(pieces, pieces.length * 2);
+            }
+            System.arraycopy(parsed[i], 0, pieces, start, parsed[i].length);
+            results[size] = points[i];
+            offsets[++size] = start + parsed[i].length;
+        }
+    }
+
+    //-1 when the line has no result. only the fields after the FEN are looked at, the move counters of a full FEN
+    //included, so a fullmove number of 1 is not taken for a white win
+    private static byte parseResult(String line){
+        String[] tokens = line.trim().split("\\s+");
+        int first = tokens.length > 5 && tokens[4].matches("\\d+") && tokens[5].matches("\\d+") ? 6 : 4;
+        for(int i=tokens.length-1; i>=first; i--){
+            String token = tokens[i].replaceAll("[\\[\\]\";]", "");
+            switch (token) {
+                case "1-0": case "1.0": return 2;
+                case "1/2-1/2": case "0.5": return 1;
+                case "0-1": case "0.0": return 0;
+                default: break;
+            }
+        }
+        return -1;
+    }
+
+    //null for a placement that is not a valid board
+    private static short[] parsePieces(String line){
+        String placement = line.trim().split("\\s+")[0];
+        short[] list = new short[32];
+        int n = 0;
+        int square = 0;
+        for(int i=0; i<placement.length(); i++){
+            char c = placement.charAt(i);
+            if(c == '/'){
+                if(square % 8 != 0){
+                    return null;
+                }
+            }else if(c >= '1' && c <= '8'){
+                square += c - '0';
+            }else{
+                int type = Evaluation.TYPES.indexOf(Character.toUpperCase(c));
+                if(type < 0 || square >= 64 || n == list.length){
+                    return null;
+                }
+                boolean white = Character.isUpperCase(c);
+                list[n++] = (short) ((white ? 0 : 1) << 9 | type * 64 + (white ? square : square ^ 56));
+                square++;
+            }
+        }
+        return square == 64 ? Arrays.copyOf(list, n) : null;
+    }
+
+    //finds the scale of the sigmoid that best fits the current values, by ternary search
+    public double fitScale(){
+        double low = 0.1;
+        double high = 10;
+        for(int i=0; i<40; i++){
+            double a = low + (high - low) / 3;
+            double b = high - (high - low) / 3;
+            scale = a;
+            double errorA = getError();
+            scale = b;
+            if(errorA < getError()){
+                high = b;
+            }else{
+                low = a;
+            }
+        }
+        scale = (low + high) / 2;
+        return scale;
+    }
+
+    //mean squared difference between the results and the predicted scores
+    public double getError(){
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        return run(() -> IntStream.range(0, chunks).parallel().mapToDouble(this::chunkError).sum()) / Math.max(1, size);
+    }
+
+    private double chunkError(int chunk){
+        double sum = 0;
+        for(int i=chunk*CHUNK; i<Math.min(size, (chunk + 1) * CHUNK); i++){
+            double error = results[i] / 2.0 - sigmoid(evaluate(i));
+            sum += error * error;
+        }
+        return sum;
+    }
+
+    //one Adam step along the gradient of the error
+    public void step(double rate){
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        double[] gradient = run(() -> IntStream.range(0, chunks).parallel().mapToObj(this::chunkGradient)
+                .reduce(EvaluationTuner::add).orElse(new double[PARAMETERS]));
+        steps++;
+        for(int j=0; j<PARAMETERS; j++){
+            double g = gradient[j] / Math.max(1, size);
+            mean[j] = 0.9 * mean[j] + 0.1 * g;
+            variance[j] = 0.999 * variance[j] + 0.001 * g * g;
+            double m = mean[j] / (1 - Math.pow(0.9, steps));
+            double v = variance[j] / (1 - Math.pow(0.999, steps));
+            parameters[j] -= rate * m / (Math.sqrt(v) + 1e-8);
+        }
+    }
+
+    private double[] chunkGradient(int chunk){
+        double[] gradient = new double[PARAMETERS];
+        double slope = scale * Math.log(10) / 400;
+        for(int i=chunk*CHUNK; i<Math.min(size, (chunk + 1) * CHUNK); i++){
+            double s = sigmoid(evaluate(i));
+            double d = 2 * (s - results[i] / 2.0) * s * (1 - s) * slope;
+            for(int j=offsets[i]; j<offsets[i + 1]; j++){
+                int piece = pieces[j];
+                double signed = (piece >> 9) == 0 ? d : -d;
+                gradient[(piece & 511) >> 6] += signed;
+                gradient[6 + (piece & 511)] += signed;
+            }
+        }
+        return gradient;
+    }
+
+    private static double[] add(double[] a, double[] b){
+        for(int j=0; j<a.length; j++){
+            a[j] += b[j];
+        }
+        return a;
+    }
+
+    //centipawns for white, as Evaluation computes them
+    private double evaluate(int position){
+        double score = 0;
+        for(int j=offsets[position]; j<offsets[position + 1]; j++){
+            int piece = pieces[j];
+            double value = parameters[(piece & 511) >> 6] + parameters[6 + (piece & 511)];
+            score += (piece >> 9) == 0 ? value : -value;
+        }
+        return score;
+    }
+
+    private double sigmoid(double score){
+        return 1 / (1 + Math.pow(10, -scale * score / 400));
+    }
+
+    private <T> T run(Supplier<T> task){
+        return pool.submit(task::get).join();
+    }
+
+    //the tuned values, rounded, laid out like the tables of Evaluation
+    public void write(Path file){
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)){
+            StringBuilder sb = new StringBuilder("    static final int[] VALUES = {");
+            for(int t=0; t<6; t++){
+                sb.append(t > 0 ? ", " : "").append(Math.round(parameters[t]));
+            }
+            sb.append("};\n\n    static final int[][] TABLES = {\n");
+            for(int t=0; t<6; t++){
+                sb.append("            {\n");
+                for(int row=0; row<8; row++){
+                    sb.append("                  ");
+                    for(int col=0; col<8; col++){
+                        sb.append(String.format("%4d", Math.round(parameters[6 + t * 64 + row * 8 + col])));
+                        if(row < 7 || col < 7){
+                            sb.append(',');
+                        }
+                    }
+                    sb.append('\n');
+                }
+                sb.append(t < 5 ? "            },\n" : "            }\n");
+            }
+            sb.append("    };\n");
+            writer.write(sb.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void shutdown(){
+        pool.shutdown();
+    }
+}
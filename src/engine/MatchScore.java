@@ -0,0 +1,95 @@
+package engine;
+
+//wins, draws and losses of the first player, with the Elo difference they imply and a sequential probability ratio test
+public class MatchScore {
+    private long wins;
+    private long draws;
+    private long losses;
+
+    public synchronized void add(double points){
+        if(points == 1){
+            wins++;
+        }else if(points == 0){
+            losses++;
+        }else{
+            draws++;
+        }
+    }
+
+    public synchronized long getWins() {
+        return wins;
+    }
+
+    public synchronized long getDraws() {
+        return draws;
+    }
+
+    public synchronized long getLosses() {
+        return losses;
+    }
+
+    public synchronized long getGames(){
+        return wins + draws + losses;
+    }
+
+    public synchronized double getScore(){
+        long games = getGames();
+        return games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+    }
+
+    public synchronized double getElo(){
+        return elo(getScore());
+    }
+
+    //half width of the 95% confidence interval
+    public synchronized double getEloError(){
+        long games = getGames();
+        if(games < 2){
+            return Double.POSITIVE_INFINITY;
+        }
+        double score = getScore();
+        double deviation = Math.sqrt(variance() / games);
+        return (elo(score + 1.96 * deviation) - elo(score - 1.96 * deviation)) / 2;
+    }
+
+    //log likelihood ratio of elo1 against elo0, using the normal approximation of the trinomial result
+    public synchronized double getLlr(double elo0, double elo1){
+        long games = getGames();
+        double variance = variance();
+        if(games == 0 || variance == 0){
+            return 0;
+        }
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * getScore() - s0 - s1) / (2 * variance);
+    }
+
+    //the test stops accepting elo1 above the upper bound and elo0 below the lower one
+    public static double lowerBound(double alpha, double beta){
+        return Math.log(beta / (1 - alpha));
+    }
+
+    public static double upperBound(double alpha, double beta){
+        return Math.log((1 - beta) / alpha);
+    }
+
+    private double variance(){
+        long games = getGames();
+        double score = getScore();
+        return (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / games;
+    }
+
+    private static double expectedScore(double elo){
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double elo(double score){
+        score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("+%d =%d -%d, score %.1f%%, Elo %.1f +/- %.1f", wins, draws, losses, getScore() * 100, getElo(), getEloError());
+    }
+}
@@ -0,0 +1,619 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.SearchIterationEvent;
+import nnue.Accumulator;
+import nnue.Network;
+import tablebase.Tablebases;
+import tablebase.Wdl;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+//iterative deepening alpha-beta with quiescence search; one instance per thread, it plays moves on the match it is given
+public class Search {
+    public static final int INFINITE = 32000;
+    public static final int MATE = 31000;
+    public static final int TABLEBASE_WIN = 20000;
+    public static final int MAX_PLY = 128;
+
+    private static final Counter SEARCH_NODES = Metrics.counter("search.nodes");
+    private static final Histogram SEARCH_TIME = Metrics.histogram("search.ns");
+    //centipawns per ply of depth left
+    private static final int FUTILITY_MARGIN = 150;
+    private static final int RAZORING_MARGIN = 300;
+    //half width of the first aspiration window, doubled on every failure
+    private static final int ASPIRATION_WINDOW = 30;
+
+    private final TranspositionTable table;
+    private final Evaluation evaluation = new Evaluation();
+    private final int[][] moves = new int[MAX_PLY][ChessMatch.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY][ChessMatch.MAX_MOVES];
+    //quiet moves that caused a cutoff, per ply of the current search
+    private final int[][] killers = new int[MAX_PLY][2];
+    //cutoff counts of quiet moves by side and from-to squares, kept between searches and halved at each start
+    private final int[][] history = new int[2][64 * 64];
+    private Tablebases tablebases;
+    private SearchListener listener;
+    //evaluates with the network instead of the hand written terms when set
+    private Network network;
+    private Accumulator accumulator;
+
+    private volatile boolean stopped;
+    private long nodes;
+    private long nodeLimit;
+    private volatile long deadline;
+    private int rootBestMove;
+    //root moves left out of the search, to find how good the position is without them
+    private int[] excludedMoves = new int[0];
+    private final EnumSet<Technique> techniques = EnumSet.allOf(Technique.class);
+    private final SearchStatistics statistics = new SearchStatistics();
+    //best root moves searched per iteration, each with the ones before it excluded
+    private int multiPv = 1;
+
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    //null goes back to the hand written evaluation
+    public void setNetwork(Network network) {
+        this.network = network;
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    //all techniques are on by default; not to be changed during a search
+    public void setEnabled(Technique technique, boolean enabled){
+        if(enabled){
+            techniques.add(technique);
+        }else{
+            techniques.remove(technique);
+        }
+    }
+
+    public boolean isEnabled(Technique technique){
+        return techniques.contains(technique);
+    }
+
+    //the listener gets every line of each iteration, best first; search still returns the best one
+    public void setMultiPv(int lines){
+        if(lines < 1){
+            throw new IllegalArgumentException("There must be at least 1 line");
+        }
+        multiPv = lines;
+    }
+
+    //kept over searches until reset
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    //may be called from another thread, the search returns its last completed iteration
+    public void stop(){
+        stopped = true;
+    }
+
+    //puts a search started without a time limit on the clock, from now; may be called from another thread
+    public void startClock(long timeMillis){
+        deadline = System.currentTimeMillis() + timeMillis;
+    }
+
+    public SearchResult search(ChessMatch match, SearchLimits limits){
+        return search(match, limits, new int[0]);
+    }
+
+    //the best of the other moves; with every legal move excluded the best move is NONE
+    public SearchResult search(ChessMatch match, SearchLimits limits, int[] excluded){
+        long begin = Metrics.ENABLED ? System.nanoTime() : 0;
+        long start = System.currentTimeMillis();
+        stopped = false;
+        nodes = 0;
+        rootBestMove = Move.NONE;
+        for(int[] k: killers){
+            k[0] = Move.NONE;
+            k[1] = Move.NONE;
+        }
+        ageHistory();
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() : Long.MAX_VALUE;
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        accumulator = network != null ? new Accumulator(network) : null;
+        match.setBoardListener(accumulator);
+
+        //lines of the last completed iteration
+        SearchResult[] lines = {new SearchResult(Move.NONE, 0, 0, 0, 0, new int[0])};
+        for(int depth=1; depth<=maxDepth; depth++){
+            SearchResult[] found = searchLines(match, depth, excluded, lines, start);
+            if(found == null){
+                break;
+            }
+            lines = found;
+            boolean mates = true;
+            for(SearchResult line: lines){
+                if(listener != null){
+                    listener.iterationFinished(line);
+                }
+                mates &= Math.abs(line.getScore()) >= MATE - depth;
+            }
+            if(stopped || mates){
+                break;
+            }
+        }
+        SearchResult result = lines[0];
+        match.setBoardListener(null);
+        if(Metrics.ENABLED){
+            SEARCH_TIME.record(System.nanoTime() - begin);
+            SEARCH_NODES.add(nodes);
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes, System.currentTimeMillis() - start, result.getPrincipalVariation(), 1, result.getNotation());
+    }
+
+    //one iteration of every line, null when it was stopped before its first line was done.
+    //from the second iteration on a stop drops the whole iteration
+    private SearchResult[] searchLines(ChessMatch match, int depth, int[] excluded, SearchResult[] previous, long start){
+        SearchResult[] found = new SearchResult[multiPv];
+        int count = 0;
+        for(int line=0; line<multiPv; line++){
+            excludedMoves = Arrays.copyOf(excluded, excluded.length + count);
+            for(int i=0; i<count; i++){
+                excludedMoves[excluded.length + i] = found[i].getBestMove();
+            }
+            rootBestMove = Move.NONE;
+            SearchIterationEvent event = Metrics.isRecording() ? new SearchIterationEvent() : null;
+            if(event != null){
+                event.begin();
+            }
+            int score = iterate(match, depth, line < previous.length ? previous[line].getScore() : 0);
+            if(event != null){
+                event.end();
+                if(event.shouldCommit()){
+                    event.gameId = match.getId();
+                    event.ply = match.getPly();
+                    event.depth = depth;
+                    event.nodes = nodes;
+                    event.score = score;
+                    event.bestMove = rootBestMove == Move.NONE ? null : match.toUci(rootBestMove);
+                    event.commit();
+                }
+            }
+            if(stopped && depth > 1){
+                return null;
+            }
+            //fewer legal moves than lines
+            if(rootBestMove == Move.NONE && line > 0){
+                break;
+            }
+            String notation = rootBestMove == Move.NONE ? Move.toString(rootBestMove) : match.toUci(rootBestMove);
+            found[count++] = new SearchResult(rootBestMove, score, depth, nodes, 0, principalVariation(match, rootBestMove, depth), 1, notation);
+            if(stopped){
+                break;
+            }
+        }
+        //a later line can come out better than an earlier one when the search is unstable
+        SearchResult[] sorted = Arrays.copyOf(found, count);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(b.getScore(), a.getScore()));
+        long elapsed = System.currentTimeMillis() - start;
+        for(int i=0; i<count; i++){
+            SearchResult r = sorted[i];
+            sorted[i] = new SearchResult(r.getBestMove(), r.getScore(), r.getDepth(), nodes, elapsed, r.getPrincipalVariation(), i + 1, r.getNotation());
+        }
+        return sorted;
+    }
+
+    //one iteration, searched with a window around the score of the last one while its bounds hold
+    private int iterate(ChessMatch match, int depth, int previous){
+        if(!techniques.contains(Technique.ASPIRATION_WINDOWS) || depth < 4 || Math.abs(previous) >= TABLEBASE_WIN){
+            return negamax(match, depth, -INFINITE, INFINITE, 0, false);
+        }
+        statistics.tried(Technique.ASPIRATION_WINDOWS);
+        int window = ASPIRATION_WINDOW;
+        int alpha = previous - window;
+        int beta = previous + window;
+        while(true){
+            long before = nodes;
+            int score = negamax(match, depth, alpha, beta, 0, false);
+            if(stopped || (score > alpha && score < beta)){
+                if(!stopped){
+                    statistics.cutoff(Technique.ASPIRATION_WINDOWS);
+                }
+                return score;
+            }
+            //only the nodes of failed windows are overhead
+            statistics.addNodes(Technique.ASPIRATION_WINDOWS, nodes - before);
+            statistics.research(Technique.ASPIRATION_WINDOWS);
+            window *= 2;
+            if(score <= alpha){
+                alpha = Math.max(previous - window, -INFINITE);
+            }else{
+                beta = Math.min(previous + window, INFINITE);
+            }
+        }
+    }
+
+    //kept below the tablebase and mate scores
+    private int evaluate(ChessMatch match){
+        if(accumulator == null){
+            return evaluation.evaluate(match);
+        }
+        return Math.max(-TABLEBASE_WIN + 1, Math.min(accumulator.evaluate(match.getCurrentPlayer()), TABLEBASE_WIN - 1));
+    }
+
+    //the best move followed by the hash moves it leads to, as long as they are legal
+    private int[] principalVariation(ChessMatch match, int bestMove, int depth){
+        int[] pv = new int[depth];
+        int length = 0;
+        int move = bestMove;
+        while(move != Move.NONE && length < depth && isLegal(match, move)){
+            pv[length++] = move;
+            match.play(move);
+            if(match.isRepetition()){
+                break;
+            }
+            long entry = table.probe(match.getKey());
+            move = entry != 0 ? TranspositionTable.move(entry) : Move.NONE;
+        }
+        for(int i=0; i<length; i++){
+            match.takeBack();
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    private static boolean isLegal(ChessMatch match, int move){
+        int[] list = new int[ChessMatch.MAX_MOVES];
+        int n = match.generateLegalMoves(list);
+        for(int i=0; i<n; i++){
+            if(list[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //nullMoved when the move that led here was a null move, which is never followed by another
+    private int negamax(ChessMatch match, int depth, int alpha, int beta, int ply, boolean nullMoved){
+        if(ply > 0 && (checkStop() || ply >= MAX_PLY - 1)){
+            return evaluate(match);
+        }
+        nodes++;
+        if(ply > 0 && match.isRepetition()){
+            return 0;
+        }
+        if(ply > 0 && tablebases != null && match.getPieceCount() <= tablebases.getMaxPieces()){
+            Wdl wdl = tablebases.probeWdl(match);
+            if(wdl != null){
+                return wdl == Wdl.WIN ? TABLEBASE_WIN - ply : wdl == Wdl.LOSS ? -TABLEBASE_WIN + ply : 0;
+            }
+        }
+        long key = match.getKey();
+        long entry = table.probe(key);
+        int ttMove = Move.NONE;
+        if(entry != 0){
+            ttMove = TranspositionTable.move(entry);
+            if(ply > 0 && TranspositionTable.depth(entry) >= depth){
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta) || (bound == TranspositionTable.UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+        boolean inCheck = match.isCheck();
+        if(inCheck && techniques.contains(Technique.CHECK_EXTENSIONS)){
+            statistics.tried(Technique.CHECK_EXTENSIONS);
+            depth++;
+        }
+        if(depth <= 0){
+            return quiescence(match, alpha, beta, ply);
+        }
+        boolean pvNode = beta - alpha > 1;
+        int staticEval = 0;
+        if(!pvNode && !inCheck){
+            staticEval = evaluate(match);
+            if(techniques.contains(Technique.RAZORING) && depth <= 2 && staticEval + RAZORING_MARGIN * depth < alpha){
+                statistics.tried(Technique.RAZORING);
+                long before = nodes;
+                int score = quiescence(match, alpha, beta, ply);
+                statistics.addNodes(Technique.RAZORING, nodes - before);
+                //quiescence fails low with alpha itself
+                if(score <= alpha){
+                    statistics.cutoff(Technique.RAZORING);
+                    return score;
+                }
+            }
+            //a pass is worse than some move unless in zugzwang, which needs pieces besides pawns to be unlikely
+            if(techniques.contains(Technique.NULL_MOVE) && !nullMoved && depth >= 3 && staticEval >= beta && hasPieces(match)){
+                statistics.tried(Technique.NULL_MOVE);
+                long before = nodes;
+                int reduction = depth >= 6 ? 3 : 2;
+                match.playNullMove();
+                int score = -negamax(match, depth - 1 - reduction, -beta, -beta + 1, ply + 1, true);
+                match.takeBack();
+                statistics.addNodes(Technique.NULL_MOVE, nodes - before);
+                if(!stopped && score >= beta){
+                    statistics.cutoff(Technique.NULL_MOVE);
+                    //a mate found after passing proves nothing
+                    return score >= MATE - MAX_PLY ? beta : score;
+                }
+            }
+        }
+        boolean futile = !pvNode && !inCheck && depth <= 2 && techniques.contains(Technique.FUTILITY) && staticEval + FUTILITY_MARGIN * depth <= alpha;
+        int[] list = moves[ply];
+        int n = match.generateLegalMoves(list);
+        if(n == 0){
+            return match.isCheck() ? -MATE + ply : 0;
+        }
+        if(ply == 0 && excludedMoves.length > 0){
+            n = exclude(list, n);
+            if(n == 0){
+                return -INFINITE;
+            }
+        }
+        orderMoves(match, list, scores[ply], n, ttMove, ply);
+        int originalAlpha = alpha;
+        int bestMove = list[0];
+        int bestScore = -INFINITE;
+        for(int i=0; i<n; i++){
+            pickNext(list, scores[ply], i, n);
+            int move = list[i];
+            boolean quiet = !match.isCapture(move) && !Move.isPromotion(move);
+            match.play(move);
+            boolean givesCheck = match.isCheck();
+            //counted per move like the cutoffs, a move that gives check is tried but kept
+            if(futile && i > 0 && quiet){
+                statistics.tried(Technique.FUTILITY);
+                if(!givesCheck){
+                    match.takeBack();
+                    statistics.cutoff(Technique.FUTILITY);
+                    continue;
+                }
+            }
+            //each search below is only needed when the one before it beat alpha
+            int score = -INFINITE;
+            boolean deeper = true;
+            boolean reduced = false;
+            if(techniques.contains(Technique.LATE_MOVE_REDUCTIONS) && depth >= 3 && i >= 3 && quiet && !inCheck && !givesCheck
+                    && move != killers[ply][0] && move != killers[ply][1]){
+                statistics.tried(Technique.LATE_MOVE_REDUCTIONS);
+                int reduction = depth >= 6 && i >= 6 ? 2 : 1;
+                score = -negamax(match, depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, false);
+                deeper = score > alpha && !stopped;
+                if(deeper){
+                    statistics.research(Technique.LATE_MOVE_REDUCTIONS);
+                }else{
+                    statistics.cutoff(Technique.LATE_MOVE_REDUCTIONS);
+                }
+                reduced = true;
+            }
+            long researchStart = nodes;
+            //after the first move the others only have to be proven worse, with a null window
+            if(deeper && i > 0 && techniques.contains(Technique.PRINCIPAL_VARIATION_SEARCH)){
+                statistics.tried(Technique.PRINCIPAL_VARIATION_SEARCH);
+                score = -negamax(match, depth - 1, -alpha - 1, -alpha, ply + 1, false);
+                deeper = score > alpha && score < beta && !stopped;
+                if(deeper){
+                    statistics.research(Technique.PRINCIPAL_VARIATION_SEARCH);
+                }else{
+                    statistics.cutoff(Technique.PRINCIPAL_VARIATION_SEARCH);
+                }
+            }
+            if(deeper){
+                long fullStart = nodes;
+                score = -negamax(match, depth - 1, -beta, -alpha, ply + 1, false);
+                if(i > 0 && techniques.contains(Technique.PRINCIPAL_VARIATION_SEARCH)){
+                    statistics.addNodes(Technique.PRINCIPAL_VARIATION_SEARCH, nodes - fullStart);
+                }
+            }
+            if(reduced && nodes != researchStart){
+                statistics.addNodes(Technique.LATE_MOVE_REDUCTIONS, nodes - researchStart);
+            }
+            match.takeBack();
+            if(stopped){
+                if(ply == 0 && rootBestMove == Move.NONE){
+                    //stopped inside the first move of the first iteration, it is still the best guess
+                    rootBestMove = list[i];
+                }
+                return bestScore == -INFINITE ? score : bestScore;
+            }
+            if(score > bestScore){
+                bestScore = score;
+                bestMove = list[i];
+                if(ply == 0){
+                    rootBestMove = bestMove;
+                }
+            }
+            if(score > alpha){
+                alpha = score;
+            }
+            if(alpha >= beta){
+                if(!match.isCapture(list[i]) && !Move.isPromotion(list[i])){
+                    rememberCutoff(match, list[i], depth, ply);
+                }
+                break;
+            }
+        }
+        //with root moves left out the score is not the one of the position
+        if(ply > 0 || excludedMoves.length == 0){
+            int bound = bestScore >= beta ? TranspositionTable.LOWER : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    private int exclude(int[] list, int n){
+        int kept = 0;
+        for(int i=0; i<n; i++){
+            boolean excluded = false;
+            for(int move: excludedMoves){
+                excluded |= move == list[i];
+            }
+            if(!excluded){
+                list[kept++] = list[i];
+            }
+        }
+        return kept;
+    }
+
+    private static boolean hasPieces(ChessMatch match){
+        for(int sq=0; sq<64; sq++){
+            ChessPiece p = match.pieceAt(sq);
+            if(p != null && p.getColor() == match.getCurrentPlayer() && "NBRQ".indexOf(p.toString().charAt(0)) >= 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int quiescence(ChessMatch match, int alpha, int beta, int ply){
+        int standPat = evaluate(match);
+        if(standPat >= beta || ply >= MAX_PLY - 1){
+            return standPat;
+        }
+        if(standPat > alpha){
+            alpha = standPat;
+        }
+        int[] list = moves[ply];
+        int n = match.generateLegalMoves(list);
+        if(n == 0){
+            return match.isCheck() ? -MATE + ply : 0;
+        }
+        int captures = 0;
+        for(int i=0; i<n; i++){
+            if(match.isCapture(list[i]) || Move.isPromotion(list[i]) && Move.promotion(list[i]) == 'Q'){
+                list[captures++] = list[i];
+            }
+        }
+        orderMoves(match, list, scores[ply], captures, Move.NONE, ply);
+        for(int i=0; i<captures; i++){
+            if(checkStop()){
+                return alpha;
+            }
+            nodes++;
+            pickNext(list, scores[ply], i, captures);
+            match.play(list[i]);
+            int score = -quiescence(match, -beta, -alpha, ply + 1);
+            match.takeBack();
+            if(score >= beta){
+                return score;
+            }
+            if(score > alpha){
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    //hash move, then captures by most valuable victim and least valuable attacker, then killers, then quiet moves by history
+    private void orderMoves(ChessMatch match, int[] list, int[] score, int n, int ttMove, int ply){
+        int side = match.getCurrentPlayer() == Color.WHITE ? 0 : 1;
+        for(int i=0; i<n; i++){
+            int move = list[i];
+            if(move == ttMove){
+                score[i] = 1 << 30;
+                continue;
+            }
+            ChessPiece victim = match.pieceAt(Move.to(move));
+            ChessPiece attacker = match.pieceAt(Move.from(move));
+            if(victim != null){
+                score[i] = (1 << 28) + Evaluation.VALUES[Evaluation.typeOf(victim)] * 10 - Evaluation.typeOf(attacker);
+            }else if(match.isCapture(move)){
+                //en passant
+                score[i] = (1 << 28) + Evaluation.VALUES[0] * 10;
+            }else if(move == killers[ply][0] || move == killers[ply][1]){
+                score[i] = 1 << 27;
+            }else{
+                score[i] = history[side][Move.from(move) * 64 + Move.to(move)];
+            }
+            if(Move.isPromotion(move)){
+                score[i] += Move.promotion(move) == 'Q' ? 1 << 28 : 0;
+            }
+        }
+    }
+
+    private void rememberCutoff(ChessMatch match, int move, int depth, int ply){
+        if(killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] table = history[match.getCurrentPlayer() == Color.WHITE ? 0 : 1];
+        int i = Move.from(move) * 64 + Move.to(move);
+        table[i] += depth * depth;
+        if(table[i] >= 1 << 26){
+            ageHistory();
+        }
+    }
+
+    private void ageHistory(){
+        for(int[] table: history){
+            for(int i=0; i<table.length; i++){
+                table[i] >>= 1;
+            }
+        }
+    }
+
+    private static void pickNext(int[] list, int[] score, int from, int n){
+        int best = from;
+        for(int i=from+1; i<n; i++){
+            if(score[i] > score[best]){
+                best = i;
+            }
+        }
+        int move = list[from];
+        list[from] = list[best];
+        list[best] = move;
+        int s = score[from];
+        score[from] = score[best];
+        score[best] = s;
+    }
+
+    private boolean checkStop(){
+        if(!stopped && (nodes & 1023) == 0 && (System.currentTimeMillis() >= deadline)){
+            stopped = true;
+        }
+        if(nodes >= nodeLimit){
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    //mate scores are stored relative to the node so they stay valid at other plies
+    private static int toTable(int score, int ply){
+        if(score >= MATE - MAX_PLY) return score + ply;
+        if(score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply){
+        if(score >= MATE - MAX_PLY) return score - ply;
+        if(score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    //nodes of the running search, or of the last one until resetNodes
+    public long getNodes() {
+        return nodes;
+    }
+
+    //forgets the hash table and move ordering of earlier games
+    public void clear(){
+        table.clear();
+        for(int[] h: history){
+            Arrays.fill(h, 0);
+        }
+    }
+
+    public void resetNodes(){
+        nodes = 0;
+    }
+}
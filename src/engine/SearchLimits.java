@@ -0,0 +1,42 @@
+package engine;
+
+//0 means no limit
+public class SearchLimits {
+    private final int depth;
+    private final long timeMillis;
+    private final long nodes;
+
+    public SearchLimits(int depth, long timeMillis, long nodes) {
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+        this.nodes = nodes;
+    }
+
+    public static SearchLimits depth(int depth){
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits time(long timeMillis){
+        return new SearchLimits(0, timeMillis, 0);
+    }
+
+    //a share of the remaining clock plus most of the increment, never closer than 50 ms to flagging
+    public static SearchLimits clock(long remainingMillis, long incrementMillis, int movesToGo){
+        int moves = movesToGo > 0 ? Math.min(movesToGo, 30) : 30;
+        long time = remainingMillis / moves + incrementMillis * 3 / 4;
+        time = Math.min(time, remainingMillis - Math.min(50, remainingMillis / 2));
+        return new SearchLimits(0, Math.max(time, 1), 0);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
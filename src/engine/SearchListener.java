@@ -0,0 +1,6 @@
+package engine;
+
+//called on the searching thread after each completed iteration
+public interface SearchListener {
+    void iterationFinished(SearchResult result);
+}
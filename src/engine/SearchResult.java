@@ -0,0 +1,86 @@
+package engine;
+
+import chess.Move;
+
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+    private final int[] principalVariation;
+    private final int line;
+    private final String notation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation) {
+        this(bestMove, score, depth, nodes, timeMillis, principalVariation, 1);
+    }
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation, int line) {
+        this(bestMove, score, depth, nodes, timeMillis, principalVariation, line, Move.toString(bestMove));
+    }
+
+    //the notation comes from the position searched, Move.toString writes castling as the king taking its rook
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation, int line, String notation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = principalVariation;
+        this.line = line;
+        this.notation = notation;
+    }
+
+    //Move.NONE when the position has no legal moves
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    //centipawns for the side to move
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    //starts with the best move, empty when there is none
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    //1 for the best line, 2 for the best one starting with another move and so on
+    public int getLine() {
+        return line;
+    }
+
+    //the best move as UCI writes it, castling as a two square king move outside Chess960
+    public String getNotation() {
+        return notation;
+    }
+
+    public boolean isMate(){
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    //moves to mate, negative when the side to move is getting mated
+    public int getMateIn(){
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    @Override
+    public String toString(){
+        return notation + " " + (isMate() ? "mate " + getMateIn() : "cp " + score) + " depth " + depth + " nodes " + nodes + " time " + timeMillis;
+    }
+}
@@ -0,0 +1,72 @@
+package engine;
+
+//what each technique did during the searches of one Search since the last reset:
+//how often it was tried, how often it pruned or reduced, and how often a reduced result had to be searched again
+public class SearchStatistics {
+    private final long[] tried = new long[Technique.values().length];
+    private final long[] cutoffs = new long[Technique.values().length];
+    private final long[] researches = new long[Technique.values().length];
+    //nodes the technique spent itself: null move and razoring searches, re-searches and failed aspiration windows
+    private final long[] nodes = new long[Technique.values().length];
+
+    void tried(Technique technique){
+        tried[technique.ordinal()]++;
+    }
+
+    void cutoff(Technique technique){
+        cutoffs[technique.ordinal()]++;
+    }
+
+    void research(Technique technique){
+        researches[technique.ordinal()]++;
+    }
+
+    void addNodes(Technique technique, long count){
+        nodes[technique.ordinal()] += count;
+    }
+
+    public long getTried(Technique technique){
+        return tried[technique.ordinal()];
+    }
+
+    public long getCutoffs(Technique technique){
+        return cutoffs[technique.ordinal()];
+    }
+
+    public long getResearches(Technique technique){
+        return researches[technique.ordinal()];
+    }
+
+    public long getNodes(Technique technique){
+        return nodes[technique.ordinal()];
+    }
+
+    public void add(SearchStatistics other){
+        for(int i=0; i<tried.length; i++){
+            tried[i] += other.tried[i];
+            cutoffs[i] += other.cutoffs[i];
+            researches[i] += other.researches[i];
+            nodes[i] += other.nodes[i];
+        }
+    }
+
+    public void reset(){
+        for(int i=0; i<tried.length; i++){
+            tried[i] = 0;
+            cutoffs[i] = 0;
+            researches[i] = 0;
+            nodes[i] = 0;
+        }
+    }
+
+    //one line per technique
+    public String[] format(){
+        String[] lines = new String[tried.length];
+        for(Technique technique: Technique.values()){
+            int i = technique.ordinal();
+            lines[i] = String.format("%-24s tried %10d  cutoffs %10d  re-searches %8d  nodes %10d",
+                    technique.getOptionName(), tried[i], cutoffs[i], researches[i], nodes[i]);
+        }
+        return lines;
+    }
+}
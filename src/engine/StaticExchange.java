@@ -0,0 +1,110 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+
+//static exchange evaluation: the material a capture wins once both sides have recaptured on its square with their
+//least valuable attackers for as long as it pays. pins and checks are not looked at
+public final class StaticExchange {
+    //a king only recaptures when nothing can take it back
+    private static final int KING_VALUE = 20000;
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    private StaticExchange() {
+    }
+
+    //centipawns for the side making the move, which must be legal
+    public static int evaluate(ChessMatch match, int move){
+        //piece type per square, -1 when empty, and whether it is white
+        int[] types = new int[64];
+        boolean[] white = new boolean[64];
+        for(int sq=0; sq<64; sq++){
+            ChessPiece p = match.pieceAt(sq);
+            types[sq] = p == null ? -1 : Evaluation.typeOf(p);
+            white[sq] = p != null && p.getColor() == Color.WHITE;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int[] gain = new int[32];
+        gain[0] = types[to] >= 0 ? value(types[to]) : match.isCapture(move) ? Evaluation.VALUES[0] : 0;
+        int attacker = value(types[from]);
+        if(Move.isPromotion(move)){
+            int promotion = Evaluation.TYPES.indexOf(Move.promotion(move));
+            gain[0] += Evaluation.VALUES[promotion] - Evaluation.VALUES[0];
+            attacker = Evaluation.VALUES[promotion];
+        }
+        if(types[to] < 0 && match.isCapture(move)){
+            //en passant, the captured pawn stands beside the moving one
+            types[from / 8 * 8 + to % 8] = -1;
+        }
+        boolean whiteToMove = !white[from];
+        types[from] = -1;
+        int depth = 0;
+        while(depth < gain.length - 1){
+            int square = leastValuableAttacker(types, white, to, whiteToMove);
+            if(square < 0){
+                break;
+            }
+            depth++;
+            gain[depth] = attacker - gain[depth - 1];
+            attacker = value(types[square]);
+            types[square] = -1;
+            whiteToMove = !whiteToMove;
+        }
+        while(depth > 0){
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    private static int value(int type){
+        return type == 5 ? KING_VALUE : Evaluation.VALUES[type];
+    }
+
+    //-1 when the side has no piece left attacking the square
+    private static int leastValuableAttacker(int[] types, boolean[] white, int square, boolean byWhite){
+        int row = square / 8;
+        int column = square % 8;
+        int best = -1;
+        //white pawns attack upwards, so they stand on the row below
+        int pawnRow = row + (byWhite ? 1 : -1);
+        best = lighter(types, best, pieceOn(types, white, pawnRow, column - 1, byWhite, 0));
+        best = lighter(types, best, pieceOn(types, white, pawnRow, column + 1, byWhite, 0));
+        for(int[] step: KNIGHT_STEPS){
+            best = lighter(types, best, pieceOn(types, white, row + step[0], column + step[1], byWhite, 1));
+        }
+        for(int[] step: KING_STEPS){
+            best = lighter(types, best, pieceOn(types, white, row + step[0], column + step[1], byWhite, 5));
+            //the first piece along the line; pieces already taken off let the ones behind them through
+            int r = row + step[0];
+            int c = column + step[1];
+            while(r >= 0 && r < 8 && c >= 0 && c < 8 && types[r * 8 + c] < 0){
+                r += step[0];
+                c += step[1];
+            }
+            int slider = step[0] == 0 || step[1] == 0 ? 3 : 2;
+            best = lighter(types, best, pieceOn(types, white, r, c, byWhite, slider));
+            best = lighter(types, best, pieceOn(types, white, r, c, byWhite, 4));
+        }
+        return best;
+    }
+
+    private static int pieceOn(int[] types, boolean[] white, int row, int column, boolean byWhite, int type){
+        if(row < 0 || row >= 8 || column < 0 || column >= 8){
+            return -1;
+        }
+        int square = row * 8 + column;
+        return types[square] == type && white[square] == byWhite ? square : -1;
+    }
+
+    private static int lighter(int[] types, int best, int square){
+        if(square < 0){
+            return best;
+        }
+        return best < 0 || value(types[square]) < value(types[best]) ? square : best;
+    }
+}
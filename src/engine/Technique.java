@@ -0,0 +1,46 @@
+package engine;
+
+//parts of the search that can be turned off, to measure what each one is worth
+public enum Technique {
+    //a pass that still fails high lets the node return without searching its moves
+    NULL_MOVE("NullMove", "nullmove"),
+    //moves after the first are searched with a null window, and again with the full one when they turn out better
+    PRINCIPAL_VARIATION_SEARCH("PrincipalVariationSearch", "pvs"),
+    //late quiet moves are searched shallower first, and again at full depth when they beat alpha
+    LATE_MOVE_REDUCTIONS("LateMoveReductions", "lmr"),
+    //quiet moves near the horizon are skipped when even a good gain would not reach alpha
+    FUTILITY("Futility", "futility"),
+    //nodes near the horizon far below alpha go straight to quiescence
+    RAZORING("Razoring", "razoring"),
+    //iterations start with a narrow window around the last score and widen it when it fails
+    ASPIRATION_WINDOWS("AspirationWindows", "aspiration"),
+    //positions in check are searched a ply deeper
+    CHECK_EXTENSIONS("CheckExtensions", "checkext");
+
+    private final String optionName;
+    private final String shortName;
+
+    Technique(String optionName, String shortName) {
+        this.optionName = optionName;
+        this.shortName = shortName;
+    }
+
+    //the UCI option
+    public String getOptionName() {
+        return optionName;
+    }
+
+    //for command lines
+    public String getShortName() {
+        return shortName;
+    }
+
+    public static Technique parse(String name){
+        for(Technique technique: values()){
+            if(technique.shortName.equalsIgnoreCase(name) || technique.optionName.equalsIgnoreCase(name)){
+                return technique;
+            }
+        }
+        throw new IllegalArgumentException("Unknown search technique " + name);
+    }
+}
@@ -0,0 +1,344 @@
+package engine;
+
+import book.PgnGame;
+import book.PgnReader;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import metrics.GameWriteEvent;
+import metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//plays the first player against the second on a pool of threads, each game with its own match and searches.
+//every opening is played twice with colors swapped, games are appended to a PGN file as they finish
+public class Tournament {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    //longer games are adjudicated as draws
+    public static final int MAX_PLIES = 400;
+
+    private final TournamentPlayer first;
+    private final TournamentPlayer second;
+    private final int concurrency;
+    private final List<Opening> openings = new ArrayList<>();
+    private PrintStream progress;
+    private long progressIntervalMillis = 10_000;
+    private boolean sprt;
+    private double elo0;
+    private double elo1;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+
+    private final MatchScore score = new MatchScore();
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean decided;
+
+    public Tournament(TournamentPlayer first, TournamentPlayer second, int concurrency) {
+        if(concurrency < 1){
+            throw new IllegalArgumentException("There must be at least 1 game at a time");
+        }
+        this.first = first;
+        this.second = second;
+        this.concurrency = concurrency;
+    }
+
+    //FEN or EPD lines, or the final positions of the games of a .pgn file
+    public void loadOpenings(Path file){
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)){
+            if(file.getFileName().toString().endsWith(".pgn")){
+                PgnReader pgn = new PgnReader(reader);
+                PgnGame game;
+                while((game = pgn.next()) != null){
+                    String fen = game.getTags().get("FEN");
+                    ChessMatch match = fen == null ? new ChessMatch() : new ChessMatch(fen);
+                    if("Chess960".equalsIgnoreCase(game.getTags().get("Variant"))){
+                        match.setChess960(true);
+                    }
+                    for(String san: game.getMoves()){
+                        match.performChessMove(match.parseSan(san));
+                    }
+                    openings.add(new Opening(match.getFen(), match.isChess960()));
+                }
+            }else{
+                String line;
+                while((line = reader.readLine()) != null){
+                    line = line.trim();
+                    if(!line.isEmpty() && !line.startsWith("#")){
+                        //castling letters of rook files make it Chess960 on their own
+                        openings.add(new Opening(BatchAnalyzer.toFen(line), false));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ChessException e) {
+            throw new IllegalArgumentException("Invalid opening in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    //random Chess960 start positions, the same ones for a given seed. the variant is kept with the FEN:
+    //with the king on e and the rooks on a and h its KQkq reads back as the usual chess
+    public void addChess960Openings(int count, long seed){
+        Random random = new Random(seed);
+        for(int i=0; i<count; i++){
+            openings.add(new Opening(ChessMatch.randomChess960(random).getFen(), true));
+        }
+    }
+
+    public void setProgress(PrintStream progress, long intervalMillis) {
+        this.progress = progress;
+        this.progressIntervalMillis = intervalMillis;
+    }
+
+    //stops starting games once the test accepts elo0 or elo1 for the first player
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        this.sprt = true;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    public MatchScore run(int games, Path pgn){
+        if(openings.isEmpty()){
+            openings.add(new Opening(START_FEN, false));
+        }
+        long start = System.currentTimeMillis();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tournament-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        try(BufferedWriter writer = Files.newBufferedWriter(pgn, StandardCharsets.UTF_8)){
+            List<Thread> workers = new ArrayList<>();
+            for(int i=0; i<Math.min(concurrency, games); i++){
+                Thread worker = new Thread(() -> work(games, writer), "tournament-game-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+            reporter.scheduleAtFixedRate(() -> report(writer, start), progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+            for(Thread worker: workers){
+                worker.join();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reporter.shutdownNow();
+        }
+        report(null, start);
+        return score;
+    }
+
+    private void work(int games, BufferedWriter writer){
+        Search firstSearch = new Search(new TranspositionTable(first.getHashMegabytes()));
+        Search secondSearch = new Search(new TranspositionTable(second.getHashMegabytes()));
+        firstSearch.setNetwork(first.getNetwork());
+        secondSearch.setNetwork(second.getNetwork());
+        for(Technique technique: first.getDisabled()){
+            firstSearch.setEnabled(technique, false);
+        }
+        for(Technique technique: second.getDisabled()){
+            secondSearch.setEnabled(technique, false);
+        }
+        int game;
+        while(!decided && (game = nextGame.getAndIncrement()) < games){
+            Opening opening = openings.get(game / 2 % openings.size());
+            boolean firstIsWhite = game % 2 == 0;
+            Game result = play(game, opening, firstIsWhite ? firstSearch : secondSearch, firstIsWhite ? secondSearch : firstSearch,
+                    firstIsWhite ? first : second, firstIsWhite ? second : first);
+            score.add(firstIsWhite ? result.whitePoints : 1 - result.whitePoints);
+            GameWriteEvent event = Metrics.isRecording() ? new GameWriteEvent() : null;
+            if(event != null){
+                event.begin();
+            }
+            try {
+                synchronized (writer){
+                    writer.write(result.pgn);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if(event != null){
+                event.end();
+                if(event.shouldCommit()){
+                    event.gameId = result.gameId;
+                    event.ply = result.plies;
+                    event.bytes = result.pgn.length();
+                    event.commit();
+                }
+            }
+            if(sprt){
+                double llr = score.getLlr(elo0, elo1);
+                if(llr <= MatchScore.lowerBound(alpha, beta) || llr >= MatchScore.upperBound(alpha, beta)){
+                    decided = true;
+                }
+            }
+        }
+    }
+
+    private Game play(int round, Opening opening, Search white, Search black, TournamentPlayer whitePlayer, TournamentPlayer blackPlayer){
+        String fen = opening.fen;
+        ChessMatch match = new ChessMatch(fen);
+        if(opening.chess960){
+            match.setChess960(true);
+        }
+        white.clear();
+        black.clear();
+        long[] clocks = {whitePlayer.getBaseMillis(), blackPlayer.getBaseMillis()};
+        List<String> sans = new ArrayList<>();
+        String termination = null;
+        double whitePoints = 0.5;
+        while(!match.isGameOver()){
+            if(match.getHalfmoveClock() >= 100){
+                termination = "fifty move rule";
+                break;
+            }
+            if(sans.size() >= MAX_PLIES){
+                termination = "adjudication";
+                break;
+            }
+            boolean whiteToMove = match.getCurrentPlayer() == Color.WHITE;
+            TournamentPlayer player = whiteToMove ? whitePlayer : blackPlayer;
+            int side = whiteToMove ? 0 : 1;
+            long begin = System.nanoTime();
+            SearchResult result = (whiteToMove ? white : black).search(match, player.limitsFor(clocks[side]));
+            long elapsed = System.nanoTime() - begin;
+            nodes.addAndGet(result.getNodes());
+            if(player.getBaseMillis() > 0){
+                clocks[side] -= elapsed / 1_000_000;
+                if(clocks[side] < 0){
+                    termination = "time forfeit";
+                    whitePoints = whiteToMove ? 0 : 1;
+                    break;
+                }
+                clocks[side] += player.getIncrementMillis();
+            }
+            sans.add(match.toSan(result.getBestMove()));
+            match.performChessMove(result.getBestMove());
+        }
+        if(termination == null){
+            if(!match.isNotCheckmate()){
+                whitePoints = match.getWinner() == Color.WHITE ? 1 : 0;
+            }
+            termination = "normal";
+        }
+        String resultTag = whitePoints == 1 ? "1-0" : whitePoints == 0 ? "0-1" : "1/2-1/2";
+        return new Game(match.getId(), sans.size(), whitePoints, toPgn(round, fen, match.isChess960(), whitePlayer, blackPlayer, resultTag, termination, sans));
+    }
+
+    private static String toPgn(int round, String fen, boolean chess960, TournamentPlayer white, TournamentPlayer black, String result, String termination, List<String> sans){
+        StringBuilder sb = new StringBuilder();
+        sb.append("[Event \"Self-play\"]\n");
+        sb.append("[Site \"local\"]\n");
+        sb.append("[Date \"").append(LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"))).append("\"]\n");
+        sb.append("[Round \"").append(round + 1).append("\"]\n");
+        sb.append("[White \"").append(white.getName()).append("\"]\n");
+        sb.append("[Black \"").append(black.getName()).append("\"]\n");
+        sb.append("[Result \"").append(result).append("\"]\n");
+        if(chess960){
+            sb.append("[Variant \"Chess960\"]\n");
+        }
+        if(!fen.equals(START_FEN)){
+            sb.append("[SetUp \"1\"]\n");
+            sb.append("[FEN \"").append(fen).append("\"]\n");
+        }
+        sb.append("[Termination \"").append(termination).append("\"]\n\n");
+        String[] fields = fen.split("\\s+");
+        boolean whiteToMove = fields[1].equals("w");
+        int moveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        int lineLength = 0;
+        List<String> tokens = new ArrayList<>();
+        for(int i=0; i<sans.size(); i++){
+            if(whiteToMove){
+                tokens.add(moveNumber + ".");
+            }else if(i == 0){
+                tokens.add(moveNumber + "...");
+            }
+            tokens.add(sans.get(i));
+            if(!whiteToMove){
+                moveNumber++;
+            }
+            whiteToMove = !whiteToMove;
+        }
+        tokens.add(result);
+        for(String token: tokens){
+            if(lineLength > 0 && lineLength + token.length() + 1 > 80){
+                sb.append('\n');
+                lineLength = 0;
+            }else if(lineLength > 0){
+                sb.append(' ');
+                lineLength++;
+            }
+            sb.append(token);
+            lineLength += token.length();
+        }
+        return sb.append("\n\n").toString();
+    }
+
+    private void report(BufferedWriter writer, long start){
+        if(writer != null){
+            synchronized (writer){
+                try {
+                    writer.flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if(progress == null){
+            return;
+        }
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        StringBuilder sb = new StringBuilder();
+        sb.append(score.getGames()).append(" games, ").append(score);
+        if(sprt){
+            sb.append(String.format(", LLR %.2f (%.2f, %.2f)", score.getLlr(elo0, elo1), MatchScore.lowerBound(alpha, beta), MatchScore.upperBound(alpha, beta)));
+        }
+        sb.append(String.format(", %.1f games/min, %.0f nodes/s", score.getGames() * 60 / seconds, nodes.get() / seconds));
+        progress.println(sb);
+    }
+
+    private static final class Game {
+        private final long gameId;
+        private final int plies;
+        private final double whitePoints;
+        private final String pgn;
+
+        Game(long gameId, int plies, double whitePoints, String pgn) {
+            this.gameId = gameId;
+            this.plies = plies;
+            this.whitePoints = whitePoints;
+            this.pgn = pgn;
+        }
+    }
+
+    private static final class Opening {
+        private final String fen;
+        //also when the FEN alone looks like the usual chess
+        private final boolean chess960;
+
+        Opening(String fen, boolean chess960) {
+            this.fen = fen;
+            this.chess960 = chess960;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package engine;
+
+import nnue.Network;
+
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
+//search settings of one side of a tournament; with a base time the player is on a clock instead of fixed limits
+public class TournamentPlayer {
+    private final String name;
+    private final SearchLimits limits;
+    private final long baseMillis;
+    private final long incrementMillis;
+    private final int hashMegabytes;
+    private Network network;
+    private final EnumSet<Technique> disabled = EnumSet.noneOf(Technique.class);
+
+    public TournamentPlayer(String name, SearchLimits limits, long baseMillis, long incrementMillis, int hashMegabytes) {
+        this.name = name;
+        this.limits = limits;
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.hashMegabytes = hashMegabytes;
+    }
+
+    //comma separated depth=N, movetime=ms, nodes=N, tc=seconds+increment hash=MB, nnue=file and off=technique+technique,
+    //for example "nodes=20000,hash=16,off=lmr"
+    public static TournamentPlayer parse(String name, String spec){
+        int depth = 0;
+        long movetime = 0;
+        long nodes = 0;
+        long base = 0;
+        long increment = 0;
+        int hash = 16;
+        Network network = null;
+        EnumSet<Technique> disabled = EnumSet.noneOf(Technique.class);
+        for(String option: spec.split(",")){
+            String[] pair = option.trim().split("=");
+            if(pair.length != 2){
+                throw new IllegalArgumentException("Invalid player option " + option);
+            }
+            switch (pair[0]) {
+                case "depth": depth = Integer.parseInt(pair[1]); break;
+                case "movetime": movetime = Long.parseLong(pair[1]); break;
+                case "nodes": nodes = Long.parseLong(pair[1]); break;
+                case "hash": hash = Integer.parseInt(pair[1]); break;
+                case "nnue": network = Network.load(Paths.get(pair[1])); break;
+                case "off":
+                    for(String technique: pair[1].split("\\+")){
+                        disabled.add(Technique.parse(technique));
+                    }
+                    break;
+                case "tc":
+                    String[] tc = pair[1].split("\\+");
+                    base = Math.round(Double.parseDouble(tc[0]) * 1000);
+                    increment = tc.length > 1 ? Math.round(Double.parseDouble(tc[1]) * 1000) : 0;
+                    break;
+                default: throw new IllegalArgumentException("Unknown player option " + pair[0]);
+            }
+        }
+        if(depth == 0 && movetime == 0 && nodes == 0 && base == 0){
+            throw new IllegalArgumentException("Player " + name + " has no depth, time or node limit");
+        }
+        TournamentPlayer player = new TournamentPlayer(name, new SearchLimits(depth, movetime, nodes), base, increment, hash);
+        player.network = network;
+        player.disabled.addAll(disabled);
+        return player;
+    }
+
+    //limits for the next move given the time left on this player's clock
+    SearchLimits limitsFor(long remainingMillis){
+        if(baseMillis == 0){
+            return limits;
+        }
+        return new SearchLimits(limits.getDepth(), SearchLimits.clock(remainingMillis, incrementMillis, 0).getTimeMillis(), limits.getNodes());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public int getHashMegabytes() {
+        return hashMegabytes;
+    }
+
+    //search techniques this player plays without
+    public EnumSet<Technique> getDisabled() {
+        return EnumSet.copyOf(disabled);
+    }
+
+    //null for the hand written evaluation; every game shares the network, it is only read
+    public Network getNetwork() {
+        return network;
+    }
+}
@@ -0,0 +1,74 @@
+package engine;
+
+import java.util.Arrays;
+
+//hash table that keeps the deeper entry of the current search; each entry packs move, score, depth, bound
+//and the search generation into one long next to its key, so entries from earlier moves stay usable until replaced.
+//the key is stored xored with the data, so threads can share a table: a torn write just fails to match
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    //0 when the position is not stored
+    public long probe(long key){
+        int i = (int) key & mask;
+        long entry = data[i];
+        return (keys[i] ^ entry) == key ? entry : 0;
+    }
+
+    //entries stored before this are replaced by any new one
+    public void newSearch(){
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound){
+        int i = (int) key & mask;
+        long old = data[i];
+        if(old != 0 && (keys[i] ^ old) != key && generation(old) == generation && depth(old) > depth){
+            return;
+        }
+        long entry = (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32) | ((long) bound << 40) | (1L << 42) | ((long) generation << 43);
+        data[i] = entry;
+        keys[i] = key ^ entry;
+    }
+
+    public void clear(){
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        generation = 0;
+    }
+
+    public static int move(long entry){
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry){
+        return (short) (entry >>> 16);
+    }
+
+    public static int depth(long entry){
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int bound(long entry){
+        return (int) (entry >>> 40) & 3;
+    }
+
+    private static int generation(long entry){
+        return (int) (entry >>> 43) & 0xFF;
+    }
+}
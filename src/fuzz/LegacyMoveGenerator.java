@@ -0,0 +1,127 @@
+package fuzz;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chesspieces.King;
+import chesspieces.Pawn;
+import chesspieces.Rook;
+
+//legal moves the slow way, as the match used to find them: the possibleMoves of every piece,
+//each tried on the board and kept unless some opponent piece can then move onto the king.
+//castling is worked out here from the move counts, not taken from King
+public final class LegacyMoveGenerator {
+    private LegacyMoveGenerator() {
+    }
+
+    public static int generate(ChessMatch match, int[] moves){
+        Color us = match.getCurrentPlayer();
+        ChessPiece[][] pieces = match.getPieces();
+        int count = 0;
+        for(int i=0; i<8; i++){
+            for(int j=0; j<8; j++){
+                ChessPiece p = pieces[i][j];
+                if(p == null || p.getColor() != us){
+                    continue;
+                }
+                boolean[][] mat = p.possibleMoves();
+                for(int r=0; r<8; r++){
+                    for(int c=0; c<8; c++){
+                        //onto an own piece is only the king castling, generated below
+                        if(!mat[r][c] || (pieces[r][c] != null && pieces[r][c].getColor() == us)){
+                            continue;
+                        }
+                        if(!isLegal(match, Move.of(i * 8 + j, r * 8 + c), us)){
+                            continue;
+                        }
+                        if(p instanceof Pawn && (r == 0 || r == 7)){
+                            for(char type: "QRBN".toCharArray()){
+                                moves[count++] = Move.of(i * 8 + j, r * 8 + c, type);
+                            }
+                        }else{
+                            moves[count++] = Move.of(i * 8 + j, r * 8 + c);
+                        }
+                    }
+                }
+            }
+        }
+        return addCastlingMoves(match, pieces, us, moves, count);
+    }
+
+    //unmoved king and rook on the first row, the squares both cross empty, and the king never passing an attacked square
+    private static int addCastlingMoves(ChessMatch match, ChessPiece[][] pieces, Color us, int[] moves, int count){
+        int row = us == Color.WHITE ? 7 : 0;
+        int king = -1;
+        for(int j=0; j<8; j++){
+            if(pieces[row][j] instanceof King && pieces[row][j].getColor() == us && pieces[row][j].getMoveCount() == 0){
+                king = j;
+            }
+        }
+        if(king < 0){
+            return count;
+        }
+        for(int rook=0; rook<8; rook++){
+            ChessPiece p = pieces[row][rook];
+            if(!(p instanceof Rook) || p.getColor() != us || p.getMoveCount() != 0){
+                continue;
+            }
+            boolean kingSide = rook > king;
+            int kingTarget = kingSide ? 6 : 2;
+            int rookTarget = kingSide ? 5 : 3;
+            int low = Math.min(Math.min(king, kingTarget), Math.min(rook, rookTarget));
+            int high = Math.max(Math.max(king, kingTarget), Math.max(rook, rookTarget));
+            boolean possible = true;
+            for(int j=low; j<=high && possible; j++){
+                possible = j == king || j == rook || pieces[row][j] == null;
+            }
+            for(int j=Math.min(king, kingTarget); j<=Math.max(king, kingTarget) && possible; j++){
+                possible = !isAttacked(pieces, row, j, us);
+            }
+            if(possible && isLegal(match, Move.of(row * 8 + king, row * 8 + rook), us)){
+                moves[count++] = Move.of(row * 8 + king, row * 8 + rook);
+            }
+        }
+        return count;
+    }
+
+    private static boolean isLegal(ChessMatch match, int move, Color us){
+        match.play(move);
+        boolean legal = !isCheck(match, us);
+        match.takeBack();
+        return legal;
+    }
+
+    public static boolean isCheck(ChessMatch match, Color color){
+        ChessPiece[][] pieces = match.getPieces();
+        for(int i=0; i<8; i++){
+            for(int j=0; j<8; j++){
+                if(pieces[i][j] instanceof King && pieces[i][j].getColor() == color){
+                    return isAttacked(pieces, i, j, color);
+                }
+            }
+        }
+        return false;
+    }
+
+    //some opponent piece could move to the square; pawns only take diagonally, so they are looked at by hand
+    //for squares that are empty
+    private static boolean isAttacked(ChessPiece[][] pieces, int row, int column, Color us){
+        for(int i=0; i<8; i++){
+            for(int j=0; j<8; j++){
+                ChessPiece p = pieces[i][j];
+                if(p == null || p.getColor() == us){
+                    continue;
+                }
+                if(p instanceof Pawn){
+                    if(i + (p.getColor() == Color.WHITE ? -1 : 1) == row && Math.abs(j - column) == 1){
+                        return true;
+                    }
+                }else if(p.possibleMoves()[row][column]){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package fuzz;
+
+import java.util.List;
+
+//a position where the match and the legacy generator disagree, with the game that led to it
+public class Mismatch {
+    private final long seed;
+    private final String startFen;
+    private final List<String> moves;
+    private final String fen;
+    private final String shrunkFen;
+    private final String description;
+
+    public Mismatch(long seed, String startFen, List<String> moves, String fen, String shrunkFen, String description) {
+        this.seed = seed;
+        this.startFen = startFen;
+        this.moves = moves;
+        this.fen = fen;
+        this.shrunkFen = shrunkFen;
+        this.description = description;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    //the smallest position found with a disagreement, the same as fen when none of its pieces could be taken away
+    public String getShrunkFen() {
+        return shrunkFen;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "seed " + seed + " after " + moves.size() + " plies: " + description + "\n"
+                + "  position fen " + startFen + (moves.isEmpty() ? "" : " moves " + String.join(" ", moves)) + "\n"
+                + "  fen " + fen + "\n"
+                + "  shrunk " + shrunkFen;
+    }
+}
@@ -0,0 +1,240 @@
+package fuzz;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//plays random games and compares, at every ply, the legal moves, check and mate of the match with the legacy generator.
+//game i of a run with seed s is played from seed s + i, so a failure is replayed with that seed and one game.
+//every other game starts from a random Chess960 position
+public class MoveGeneratorFuzzer {
+    private final int threads;
+    private final int maxPlies;
+    //runs stop starting games once this many failures are found
+    private final int maxFailures;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong plies = new AtomicLong();
+    private final List<Mismatch> failures = Collections.synchronizedList(new ArrayList<>());
+
+    public MoveGeneratorFuzzer(int threads, int maxPlies, int maxFailures) {
+        if(threads < 1 || maxPlies < 1 || maxFailures < 1){
+            throw new IllegalArgumentException("Threads, plies and failures must be at least 1");
+        }
+        this.threads = threads;
+        this.maxPlies = maxPlies;
+        this.maxFailures = maxFailures;
+    }
+
+    public List<Mismatch> run(long seed, int count){
+        List<Thread> workers = new ArrayList<>();
+        for(int i=0; i<Math.min(threads, count); i++){
+            Thread worker = new Thread(() -> work(seed, count), "fuzz-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            for(Thread worker: workers){
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ArrayList<>(failures);
+    }
+
+    private void work(long seed, int count){
+        int[] moves = new int[ChessMatch.MAX_MOVES];
+        int[] legacy = new int[ChessMatch.MAX_MOVES];
+        int game;
+        while(failures.size() < maxFailures && (game = nextGame.getAndIncrement()) < count){
+            Mismatch mismatch = play(seed + game, game % 2 == 1, moves, legacy);
+            games.incrementAndGet();
+            if(mismatch != null){
+                failures.add(mismatch);
+            }
+        }
+    }
+
+    private Mismatch play(long seed, boolean chess960, int[] moves, int[] legacy){
+        Random random = new Random(seed);
+        ChessMatch match = chess960 ? ChessMatch.randomChess960(random) : new ChessMatch();
+        String startFen = match.getFen();
+        List<String> played = new ArrayList<>();
+        for(int ply=0; ply<=maxPlies; ply++){
+            String description;
+            try {
+                description = compare(match, moves, legacy);
+            } catch (RuntimeException e) {
+                description = "exception " + e;
+            }
+            plies.incrementAndGet();
+            if(description != null){
+                String fen = match.getFen();
+                return new Mismatch(seed, startFen, played, fen, shrink(fen, moves, legacy), description);
+            }
+            int count = match.generateLegalMoves(moves);
+            if(count == 0 || ply == maxPlies){
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            played.add(Move.toString(move));
+            match.play(move);
+        }
+        return null;
+    }
+
+    //null when both agree, otherwise what differs
+    static String compare(ChessMatch match, int[] moves, int[] legacy){
+        int count = match.generateLegalMoves(moves);
+        int legacyCount = LegacyMoveGenerator.generate(match, legacy);
+        boolean check = match.isCheck();
+        boolean legacyCheck = LegacyMoveGenerator.isCheck(match, match.getCurrentPlayer());
+        if(check != legacyCheck){
+            return "check is " + check + ", legacy " + legacyCheck;
+        }
+        int[] fast = Arrays.copyOf(moves, count);
+        int[] slow = Arrays.copyOf(legacy, legacyCount);
+        Arrays.sort(fast);
+        Arrays.sort(slow);
+        if(!Arrays.equals(fast, slow)){
+            return "extra moves " + difference(fast, slow) + ", missing moves " + difference(slow, fast);
+        }
+        //checkmate is only worked out for moves made with performChessMove and for positions set up from FEN,
+        //which also has to give back the same moves
+        ChessMatch copy = new ChessMatch(match.getFen());
+        boolean mate = legacyCheck && legacyCount == 0;
+        if(copy.isNotCheckmate() == mate){
+            return "checkmate is " + !copy.isNotCheckmate() + ", legacy " + mate;
+        }
+        int copyCount = copy.generateLegalMoves(moves);
+        int[] copied = Arrays.copyOf(moves, copyCount);
+        Arrays.sort(copied);
+        if(!Arrays.equals(copied, slow)){
+            return "from FEN extra moves " + difference(copied, slow) + ", missing moves " + difference(slow, copied);
+        }
+        return null;
+    }
+
+    private static String difference(int[] sorted, int[] other){
+        StringBuilder sb = new StringBuilder("[");
+        for(int move: sorted){
+            if(Arrays.binarySearch(other, move) < 0){
+                sb.append(sb.length() > 1 ? " " : "").append(Move.toString(move));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    //takes pieces, castling rights and the en passant square away from the position for as long as a disagreement remains
+    static String shrink(String fen, int[] moves, int[] legacy){
+        String smallest = fen;
+        boolean shrunk = true;
+        while(shrunk){
+            shrunk = false;
+            for(String candidate: smallerPositions(smallest)){
+                if(disagrees(candidate, moves, legacy)){
+                    smallest = candidate;
+                    shrunk = true;
+                    break;
+                }
+            }
+        }
+        return smallest;
+    }
+
+    private static boolean disagrees(String fen, int[] moves, int[] legacy){
+        ChessMatch match;
+        try {
+            match = new ChessMatch(fen);
+        } catch (ChessException e) {
+            return false;
+        }
+        try {
+            return compare(match, moves, legacy) != null;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static List<String> smallerPositions(String fen){
+        String[] fields = fen.split(" ");
+        char[] squares = new char[64];
+        int square = 0;
+        for(char c: fields[0].toCharArray()){
+            if(Character.isDigit(c)){
+                for(int i=0; i<c-'0'; i++){
+                    squares[square++] = '.';
+                }
+            }else if(c != '/'){
+                squares[square++] = c;
+            }
+        }
+        List<String> list = new ArrayList<>();
+        for(int i=0; i<64; i++){
+            if(squares[i] != '.' && Character.toUpperCase(squares[i]) != 'K'){
+                char piece = squares[i];
+                squares[i] = '.';
+                fields[0] = placement(squares);
+                list.add(String.join(" ", fields));
+                squares[i] = piece;
+            }
+        }
+        fields[0] = placement(squares);
+        String castling = fields[2];
+        for(int i=0; i<castling.length() && !castling.equals("-"); i++){
+            String rest = castling.substring(0, i) + castling.substring(i + 1);
+            fields[2] = rest.isEmpty() ? "-" : rest;
+            list.add(String.join(" ", fields));
+        }
+        fields[2] = castling;
+        if(!fields[3].equals("-")){
+            fields[3] = "-";
+            list.add(String.join(" ", fields));
+        }
+        return list;
+    }
+
+    private static String placement(char[] squares){
+        StringBuilder sb = new StringBuilder();
+        for(int row=0; row<8; row++){
+            int empty = 0;
+            for(int column=0; column<8; column++){
+                char c = squares[row * 8 + column];
+                if(c == '.'){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(c);
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(row < 7){
+                sb.append('/');
+            }
+        }
+        return sb.toString();
+    }
+
+    public long getGames() {
+        return games.get();
+    }
+
+    public long getPlies() {
+        return plies.get();
+    }
+}
@@ -0,0 +1,34 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//striped, so threads adding at the same time do not contend
+public class Counter {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment(){
+        count.increment();
+    }
+
+    public void add(long value){
+        count.add(value);
+    }
+
+    public long get(){
+        return count.sum();
+    }
+
+    void reset(){
+        count.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + get();
+    }
+}
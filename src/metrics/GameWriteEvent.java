@@ -0,0 +1,28 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("chess.GameWrite")
+@Label("Game Write")
+@Category({"Chess", "Persistence"})
+@Description("A finished game appended to a PGN file, including the wait for the file")
+@Threshold("5 ms")
+@StackTrace(false)
+public class GameWriteEvent extends Event {
+    @Label("Game")
+    public long gameId;
+
+    @Label("Plies")
+    public int ply;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,104 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//latencies in nanoseconds, in buckets that are exact below 64 and then split every power of two in 32,
+//so every recorded value is known to within about 3% as in HdrHistogram
+public class Histogram {
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BITS = 5;
+    private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        total.addAndGet(value);
+        long m;
+        while(value > (m = max.get()) && !max.compareAndSet(m, value)){
+            //another thread raised it first
+        }
+    }
+
+    private static int indexOf(long value){
+        if(value < LINEAR){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+    }
+
+    //the largest value that falls in the bucket
+    private static long highestOf(int index){
+        if(index < LINEAR){
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 6;
+        int shift = exponent - SUB_BITS;
+        long low = (long) ((index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    public long getCount(){
+        long count = 0;
+        for(int i=0; i<BUCKETS; i++){
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    //percentile from 0 to 100
+    public long getValueAtPercentile(double percentile){
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for(int i=0; i<BUCKETS; i++){
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i=0; i<BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= rank){
+                return Math.min(highestOf(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    public double getMean(){
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.get() / count;
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    void reset(){
+        for(int i=0; i<BUCKETS; i++){
+            counts.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count %d mean %.0f p50 %d p90 %d p99 %d p99.9 %d max %d", name, getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,71 @@
+package metrics;
+
+import jdk.jfr.FlightRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+//named counters and latency histograms, switched on with -Dmetrics=true.
+//callers test ENABLED before recording; it is a constant, so the compiler removes the disabled code
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("metrics");
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    //true while a flight recorder runs, so JFR events are only created when something can record them.
+    //the first event object starts up the whole of JFR, a quarter of a second before the first move when nothing
+    //records; a recording started later with jcmd makes this true from then on
+    public static boolean isRecording(){
+        return FlightRecorder.isInitialized();
+    }
+
+    //no computeIfAbsent with a method reference: every class holding a counter would pay for bootstrapping it at startup
+    public static Counter counter(String name){
+        Counter counter = COUNTERS.get(name);
+        if(counter == null){
+            Counter created = new Counter(name);
+            counter = COUNTERS.putIfAbsent(name, created);
+            if(counter == null){
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    //values in nanoseconds
+    public static Histogram histogram(String name){
+        Histogram histogram = HISTOGRAMS.get(name);
+        if(histogram == null){
+            Histogram created = new Histogram(name);
+            histogram = HISTOGRAMS.putIfAbsent(name, created);
+            if(histogram == null){
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    //one line per metric, sorted by name
+    public static List<String> snapshot(){
+        List<String> lines = new ArrayList<>();
+        for(Counter counter: new TreeMap<>(COUNTERS).values()){
+            lines.add(counter.toString());
+        }
+        for(Histogram histogram: new TreeMap<>(HISTOGRAMS).values()){
+            lines.add(histogram.toString());
+        }
+        return lines;
+    }
+
+    public static void reset(){
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("chess.Move")
+@Label("Move")
+@Category({"Chess", "Match"})
+@Description("A move validated and played with its end of game tests")
+@Threshold("1 ms")
+@StackTrace(false)
+public class MoveEvent extends Event {
+    @Label("Game")
+    public long gameId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Move")
+    public String move;
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("chess.Promotion")
+@Label("Promotion")
+@Category({"Chess", "Match"})
+@Description("A promoted pawn replaced by the chosen piece")
+@Threshold("1 ms")
+@StackTrace(false)
+public class PromotionEvent extends Event {
+    @Label("Game")
+    public long gameId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Piece")
+    public String piece;
+}
@@ -0,0 +1,36 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("chess.SearchIteration")
+@Label("Search Iteration")
+@Category({"Chess", "Engine"})
+@Description("One depth of iterative deepening")
+@Threshold("10 ms")
+@StackTrace(false)
+public class SearchIterationEvent extends Event {
+    @Label("Game")
+    public long gameId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Nodes")
+    @Description("Nodes of the search so far")
+    public long nodes;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Best Move")
+    public String bestMove;
+}
@@ -0,0 +1,78 @@
+package nnue;
+
+import chess.BoardListener;
+import chess.Color;
+
+//hidden layer of both sides, kept up to date from the pieces added to and removed from the board.
+//changes are only counted until the next evaluation, so the moves made and taken back while
+//generating legal moves cancel out without touching the accumulators
+public class Accumulator implements BoardListener {
+    private final Network network;
+    private final Kernels kernels;
+    private final short[] white;
+    private final short[] black;
+    private final int[] pending = new int[Network.FEATURES];
+    private final int[] touched = new int[Network.FEATURES];
+    private final boolean[] isTouched = new boolean[Network.FEATURES];
+    private int touchedCount;
+
+    public Accumulator(Network network) {
+        this(network, Kernels.DEFAULT);
+    }
+
+    Accumulator(Network network, Kernels kernels) {
+        this.network = network;
+        this.kernels = kernels;
+        white = network.getFeatureBiases().clone();
+        black = network.getFeatureBiases().clone();
+    }
+
+    @Override
+    public void pieceAdded(int piece, int square) {
+        change(Network.feature(piece, square), 1);
+    }
+
+    @Override
+    public void pieceRemoved(int piece, int square) {
+        change(Network.feature(piece, square), -1);
+    }
+
+    private void change(int feature, int delta){
+        pending[feature] += delta;
+        if(!isTouched[feature]){
+            isTouched[feature] = true;
+            touched[touchedCount++] = feature;
+        }
+    }
+
+    //centipawns for the side to move
+    public int evaluate(Color sideToMove){
+        update();
+        return sideToMove == Color.WHITE ? network.evaluate(white, black, kernels) : network.evaluate(black, white, kernels);
+    }
+
+    private void update(){
+        short[] weights = network.getFeatureWeights();
+        int hidden = network.getHidden();
+        for(int i=0; i<touchedCount; i++){
+            int feature = touched[i];
+            int delta = pending[feature];
+            int mirrored = Network.mirror(feature);
+            for(; delta>0; delta--){
+                kernels.add(white, weights, feature * hidden);
+                kernels.add(black, weights, mirrored * hidden);
+            }
+            for(; delta<0; delta++){
+                kernels.subtract(white, weights, feature * hidden);
+                kernels.subtract(black, weights, mirrored * hidden);
+            }
+            pending[feature] = 0;
+            isTouched[feature] = false;
+        }
+        touchedCount = 0;
+    }
+
+    public static String getKernelName() {
+        return Kernels.DEFAULT.getName();
+    }
+}
@@ -0,0 +1,29 @@
+package nnue;
+
+//the inner loops of inference; the vector version is only loaded when the incubator module is present,
+//for example when started with --add-modules jdk.incubator.vector
+abstract class Kernels {
+    static final Kernels DEFAULT = select();
+
+    //acc[i] += weights[offset + i]
+    abstract void add(short[] acc, short[] weights, int offset);
+
+    //acc[i] -= weights[offset + i]
+    abstract void subtract(short[] acc, short[] weights, int offset);
+
+    //sum of clamp(acc[i], 0, max) * weights[offset + i]
+    abstract int clippedDot(short[] acc, byte[] weights, int offset, int max);
+
+    abstract String getName();
+
+    private static Kernels select(){
+        if(!Boolean.getBoolean("nnue.scalar") && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            try {
+                return (Kernels) Class.forName("nnue.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //an older or partial module, the scalar loops still work
+            }
+        }
+        return new ScalarKernels();
+    }
+}
@@ -0,0 +1,120 @@
+package nnue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+//768 piece-square inputs per side, one hidden layer of int16 accumulators and an int8 output layer.
+//file layout: magic, hidden size, feature weights [768][hidden], hidden biases, output weights [2][hidden], output bias
+public class Network {
+    public static final int FEATURES = 768;
+    private static final int MAGIC = 0x434E4E31;
+    //activations are clipped to [0, QA], output weights are scaled by QB, the result by SCALE / (QA * QB)
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+
+    private final int hidden;
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final byte[] outputWeights;
+    private final int outputBias;
+
+    public Network(int hidden, short[] featureWeights, short[] featureBiases, byte[] outputWeights, int outputBias) {
+        if(hidden < 1 || featureWeights.length != FEATURES * hidden || featureBiases.length != hidden || outputWeights.length != 2 * hidden){
+            throw new NnueException("Layer sizes do not match a hidden layer of " + hidden);
+        }
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static Network load(Path file){
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new NnueException("Cannot read network " + file, e);
+        }
+        if(buffer.remaining() < 8 || buffer.getInt() != MAGIC){
+            throw new NnueException("Not a network file: " + file);
+        }
+        int hidden = buffer.getInt();
+        if(hidden < 1 || buffer.remaining() != (FEATURES + 1) * hidden * 2L + 2L * hidden + 4){
+            throw new NnueException("Truncated or corrupt network: " + file);
+        }
+        short[] featureWeights = new short[FEATURES * hidden];
+        short[] featureBiases = new short[hidden];
+        byte[] outputWeights = new byte[2 * hidden];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + featureWeights.length * 2);
+        buffer.asShortBuffer().get(featureBiases);
+        buffer.position(buffer.position() + featureBiases.length * 2);
+        buffer.get(outputWeights);
+        return new Network(hidden, featureWeights, featureBiases, outputWeights, buffer.getInt());
+    }
+
+    public void save(Path file){
+        ByteBuffer buffer = ByteBuffer.allocate(8 + (FEATURES + 1) * hidden * 2 + 2 * hidden + 4);
+        buffer.putInt(MAGIC).putInt(hidden);
+        buffer.asShortBuffer().put(featureWeights);
+        buffer.position(buffer.position() + featureWeights.length * 2);
+        buffer.asShortBuffer().put(featureBiases);
+        buffer.position(buffer.position() + featureBiases.length * 2);
+        buffer.put(outputWeights).putInt(outputBias);
+        try {
+            Files.write(file, buffer.array());
+        } catch (IOException e) {
+            throw new NnueException("Cannot write network " + file, e);
+        }
+    }
+
+    //small random weights, for measuring inference speed before a trained network exists
+    public static Network random(int hidden, long seed){
+        Random random = new Random(seed);
+        short[] featureWeights = new short[FEATURES * hidden];
+        for(int i=0; i<featureWeights.length; i++){
+            featureWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        short[] featureBiases = new short[hidden];
+        for(int i=0; i<hidden; i++){
+            featureBiases[i] = (short) random.nextInt(QA);
+        }
+        byte[] outputWeights = new byte[2 * hidden];
+        random.nextBytes(outputWeights);
+        return new Network(hidden, featureWeights, featureBiases, outputWeights, 0);
+    }
+
+    //feature index from the point of view of white, a8 = 0
+    static int feature(int piece, int square){
+        return piece * 64 + square;
+    }
+
+    //the same piece seen by black: colors swapped and the board flipped
+    static int mirror(int feature){
+        int piece = feature / 64;
+        return feature(piece < 6 ? piece + 6 : piece - 6, (feature % 64) ^ 56);
+    }
+
+    //centipawns for the side whose accumulator is us
+    int evaluate(short[] us, short[] them, Kernels kernels){
+        long sum = kernels.clippedDot(us, outputWeights, 0, QA) + (long) kernels.clippedDot(them, outputWeights, hidden, QA);
+        return (int) ((sum + outputBias) * SCALE / (QA * QB));
+    }
+
+    public int getHidden() {
+        return hidden;
+    }
+
+    short[] getFeatureWeights() {
+        return featureWeights;
+    }
+
+    short[] getFeatureBiases() {
+        return featureBiases;
+    }
+}
@@ -0,0 +1,77 @@
+package nnue;
+
+import chess.ChessMatch;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//walks every line to a fixed depth, evaluating each position with the scalar and the vector loops,
+//and checks the updated accumulators against ones built from scratch
+public class NetworkBench {
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    private final int[][] moves = new int[16][ChessMatch.MAX_MOVES];
+    private long positions;
+    private long checksum;
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.out.println("usage: NetworkBench <network or hidden size> [depth] [save random network to]");
+            return;
+        }
+        Network network = args[0].matches("\\d+") ? Network.random(Integer.parseInt(args[0]), 1) : Network.load(Paths.get(args[0]));
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        if(args.length > 2){
+            Path output = Paths.get(args[2]);
+            network.save(output);
+            network = Network.load(output);
+        }
+        System.out.println(network.getHidden() + " hidden neurons, default loops: " + Kernels.DEFAULT.getName());
+        long expected = 0;
+        for(Kernels kernels: new Kernels[]{new ScalarKernels(), Kernels.DEFAULT}){
+            NetworkBench bench = new NetworkBench();
+            long start = System.nanoTime();
+            for(String fen: POSITIONS){
+                ChessMatch match = new ChessMatch(fen);
+                Accumulator accumulator = new Accumulator(network, kernels);
+                match.setBoardListener(accumulator);
+                bench.walk(match, accumulator, network, kernels, depth);
+                match.setBoardListener(null);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s: %d positions, %.0f ns per position, checksum %d%n", kernels.getName(), bench.positions, (double) elapsed / bench.positions, bench.checksum);
+            if(kernels != Kernels.DEFAULT){
+                expected = bench.checksum;
+            }else if(bench.checksum != expected){
+                throw new NnueException("The " + kernels.getName() + " loops disagree with the scalar ones");
+            }
+        }
+    }
+
+    private void walk(ChessMatch match, Accumulator accumulator, Network network, Kernels kernels, int depth){
+        int score = accumulator.evaluate(match.getCurrentPlayer());
+        positions++;
+        checksum = checksum * 31 + score;
+        //a full refresh every so often catches updates that drift
+        if(positions % 1024 == 0){
+            Accumulator fresh = new Accumulator(network, kernels);
+            new ChessMatch(match.getFen()).setBoardListener(fresh);
+            if(fresh.evaluate(match.getCurrentPlayer()) != score){
+                throw new NnueException("Incremental update differs from a refresh in " + match.getFen());
+            }
+        }
+        if(depth == 0){
+            return;
+        }
+        int n = match.generateLegalMoves(moves[depth]);
+        for(int i=0; i<n; i++){
+            match.play(moves[depth][i]);
+            walk(match, accumulator, network, kernels, depth - 1);
+            match.takeBack();
+        }
+    }
+}
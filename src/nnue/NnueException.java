@@ -0,0 +1,11 @@
+package nnue;
+
+public class NnueException extends RuntimeException{
+    public NnueException(String message) {
+        super(message);
+    }
+
+    public NnueException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,31 @@
+package nnue;
+
+class ScalarKernels extends Kernels {
+    @Override
+    void add(short[] acc, short[] weights, int offset) {
+        for(int i=0; i<acc.length; i++){
+            acc[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    void subtract(short[] acc, short[] weights, int offset) {
+        for(int i=0; i<acc.length; i++){
+            acc[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    int clippedDot(short[] acc, byte[] weights, int offset, int max) {
+        int sum = 0;
+        for(int i=0; i<acc.length; i++){
+            sum += Math.max(0, Math.min(acc[i], max)) * weights[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    String getName() {
+        return "scalar";
+    }
+}
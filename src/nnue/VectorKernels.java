@@ -0,0 +1,63 @@
+package nnue;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+//SIMD loops over the widest vectors of the machine, the tails are done one lane at a time
+class VectorKernels extends Kernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    //as many bytes as there are shorts, so a load of weights widens into one short vector
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+    //half as many ints, a short vector widens into two of them
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    void add(short[] acc, short[] weights, int offset) {
+        int i = 0;
+        for(; i<SHORTS.loopBound(acc.length); i+=SHORTS.length()){
+            ShortVector.fromArray(SHORTS, acc, i).add(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(acc, i);
+        }
+        for(; i<acc.length; i++){
+            acc[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    void subtract(short[] acc, short[] weights, int offset) {
+        int i = 0;
+        for(; i<SHORTS.loopBound(acc.length); i+=SHORTS.length()){
+            ShortVector.fromArray(SHORTS, acc, i).sub(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(acc, i);
+        }
+        for(; i<acc.length; i++){
+            acc[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    int clippedDot(short[] acc, byte[] weights, int offset, int max) {
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for(; i<SHORTS.loopBound(acc.length); i+=SHORTS.length()){
+            ShortVector clipped = ShortVector.fromArray(SHORTS, acc, i).max((short) 0).min((short) max);
+            ShortVector w = (ShortVector) ByteVector.fromArray(BYTES, weights, offset + i).convertShape(VectorOperators.B2S, SHORTS, 0);
+            //255 * 127 still fits in a short
+            ShortVector product = clipped.mul(w);
+            sum = sum.add(product.convertShape(VectorOperators.S2I, INTS, 0))
+                    .add(product.convertShape(VectorOperators.S2I, INTS, 1));
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for(; i<acc.length; i++){
+            total += Math.max(0, Math.min(acc[i], max)) * weights[offset + i];
+        }
+        return total;
+    }
+
+    @Override
+    String getName() {
+        return "vector " + SHORTS.vectorBitSize() + " bit";
+    }
+}
@@ -0,0 +1,409 @@
+package puzzle;
+
+import book.PgnGame;
+import book.PgnReader;
+import chess.ChessMatch;
+import chess.Color;
+import engine.Evaluation;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.StaticExchange;
+import engine.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//finds positions of stored games with a single winning move. the games are read on the calling thread, replayed and
+//filtered on one pool, verified by search on another and written by one more thread, connected by bounded queues.
+//a candidate is a position after which the player to move was ahead in material a few plies later, or mated,
+//without a capture that simply wins that material. it becomes a puzzle when the search finds a winning move
+//and nothing close with every other move.
+//results are tab separated: fen, best move, score, principal variation, game number, ply, move played in the game.
+//the checkpoint file holds the number of games fully done, a run with the same files goes on from there
+public class PuzzleMiner {
+    private static final Game END_GAME = new Game(-1, null);
+    private static final Candidate END_CANDIDATE = new Candidate(-1, 0, null, null);
+    private static final Output END_OUTPUT = new Output(-1, 0, null);
+    //opening moves are left out, they are better served by the book
+    private static final int MIN_PLY = 8;
+    //plies after a position in which its material gain is measured
+    private static final int LOOKAHEAD = 6;
+
+    private final int filterThreads;
+    private final int verifyThreads;
+    private final int hashMegabytes;
+    private final SearchLimits limits;
+    //material gain that makes a candidate, in centipawns
+    private int swing = 200;
+    //score of the best move, and how far below it the second best must stay
+    private int winScore = 200;
+    private int margin = 150;
+    private PrintStream progress;
+    private long checkpointIntervalMillis = 30_000;
+
+    private final AtomicLong gamesRead = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong puzzles = new AtomicLong();
+
+    public PuzzleMiner(int filterThreads, int verifyThreads, int hashMegabytes, SearchLimits limits) {
+        if(filterThreads < 1 || verifyThreads < 1){
+            throw new IllegalArgumentException("There must be at least 1 thread for each stage");
+        }
+        this.filterThreads = filterThreads;
+        this.verifyThreads = verifyThreads;
+        this.hashMegabytes = hashMegabytes;
+        this.limits = limits;
+    }
+
+    public void setThresholds(int swing, int winScore, int margin) {
+        this.swing = swing;
+        this.winScore = winScore;
+        this.margin = margin;
+    }
+
+    //progress is printed at every checkpoint
+    public void setProgress(PrintStream progress, long checkpointIntervalMillis) {
+        this.progress = progress;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    //returns the number of puzzles found by this run
+    public long run(Path input, Path output, Path checkpoint){
+        long first = resume(output, checkpoint);
+        BlockingQueue<Game> games = new ArrayBlockingQueue<>(filterThreads * 16);
+        BlockingQueue<Candidate> found = new ArrayBlockingQueue<>(verifyThreads * 64);
+        BlockingQueue<Output> outputs = new ArrayBlockingQueue<>(1024);
+        long start = System.currentTimeMillis();
+        //set by the writer when it fails; nothing drains the queues after that, so every stage is stopped
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> stages = new CopyOnWriteArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.ISO_8859_1);
+            BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)){
+            List<Thread> filters = new ArrayList<>();
+            for(int i=0; i<filterThreads; i++){
+                filters.add(new Thread(() -> filter(games, found, outputs), "puzzle-filter-" + i));
+            }
+            List<Thread> verifiers = new ArrayList<>();
+            for(int i=0; i<verifyThreads; i++){
+                verifiers.add(new Thread(() -> verify(found, outputs), "puzzle-verify-" + i));
+            }
+            stages.addAll(filters);
+            stages.addAll(verifiers);
+            stages.add(Thread.currentThread());
+            Thread writerThread = new Thread(() -> {
+                try {
+                    write(outputs, writer, checkpoint, first, start);
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                    stages.forEach(Thread::interrupt);
+                }
+            }, "puzzle-writer");
+            writerThread.start();
+            filters.forEach(Thread::start);
+            verifiers.forEach(Thread::start);
+            stages.add(writerThread);
+            PgnReader pgn = new PgnReader(reader);
+            PgnGame game;
+            long index = 0;
+            while((game = pgn.next()) != null){
+                if(index >= first){
+                    games.put(new Game(index, game));
+                    gamesRead.incrementAndGet();
+                }
+                index++;
+            }
+            //each stage is told to end once the one before it is done
+            for(int i=0; i<filterThreads; i++){
+                games.put(END_GAME);
+            }
+            for(Thread filter: filters){
+                filter.join();
+            }
+            for(int i=0; i<verifyThreads; i++){
+                found.put(END_CANDIDATE);
+            }
+            for(Thread verifier: verifiers){
+                verifier.join();
+            }
+            outputs.put(END_OUTPUT);
+            writerThread.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            //the other stages would wait forever on queues nobody serves any more
+            for(Thread stage: stages){
+                if(stage != Thread.currentThread()){
+                    stage.interrupt();
+                }
+            }
+            if(failure.get() == null){
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(failure.get() != null){
+            //the interrupt came from the writer, not from the caller
+            Thread.interrupted();
+            throw failure.get();
+        }
+        return puzzles.get();
+    }
+
+    //the number of games already done, with the puzzles of later games dropped from the output as they are found again
+    private static long resume(Path output, Path checkpoint){
+        try {
+            if(!Files.exists(checkpoint)){
+                Files.deleteIfExists(output);
+                return 0;
+            }
+            long done = Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim());
+            if(Files.exists(output)){
+                List<String> kept = new ArrayList<>();
+                for(String line: Files.readAllLines(output, StandardCharsets.UTF_8)){
+                    String[] fields = line.split("\t");
+                    if(fields.length > 4 && Long.parseLong(fields[4]) < done){
+                        kept.add(line);
+                    }
+                }
+                Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+                Files.write(temporary, kept, StandardCharsets.UTF_8);
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return done;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid checkpoint " + checkpoint, e);
+        }
+    }
+
+    private void filter(BlockingQueue<Game> games, BlockingQueue<Candidate> found, BlockingQueue<Output> outputs){
+        try {
+            Game game;
+            while((game = games.take()) != END_GAME){
+                List<Candidate> list;
+                try {
+                    list = candidates(game);
+                } catch (RuntimeException e) {
+                    //an illegal move or a bad FEN tag; the game still has to be counted as done
+                    failed.incrementAndGet();
+                    list = List.of();
+                }
+                candidates.addAndGet(list.size());
+                //the count goes out before the candidates, so the writer never sees a game finish early
+                outputs.put(new Output(game.index, list.size(), null));
+                for(Candidate candidate: list){
+                    found.put(candidate);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //plays the game through once for the material after every ply, then walks back through the positions that gained enough
+    private List<Candidate> candidates(Game game){
+        String fen = game.pgn.getTags().get("FEN");
+        ChessMatch match = fen == null ? new ChessMatch() : new ChessMatch(fen);
+        List<String> sans = game.pgn.getMoves();
+        int[] material = new int[sans.size() + 1];
+        int[] moves = new int[sans.size()];
+        //material of white
+        material[0] = whiteMaterial(match);
+        for(int i=0; i<sans.size(); i++){
+            moves[i] = match.parseSan(sans.get(i));
+            match.play(moves[i]);
+            material[i + 1] = whiteMaterial(match);
+        }
+        positions.addAndGet(sans.size());
+        boolean mated = match.generateLegalMoves(new int[ChessMatch.MAX_MOVES]) == 0 && match.isCheck();
+        List<Candidate> list = new ArrayList<>();
+        for(int ply=sans.size()-1; ply>=0; ply--){
+            match.takeBack();
+            if(ply < MIN_PLY){
+                continue;
+            }
+            int sign = match.getCurrentPlayer() == Color.WHITE ? 1 : -1;
+            int end = Math.min(ply + LOOKAHEAD, sans.size());
+            int gain = sign * (material[end] - material[ply]);
+            //the player to move gives the mate at the end of the game
+            boolean mates = mated && (sans.size() - ply) % 2 == 1 && sans.size() - ply <= LOOKAHEAD;
+            if(!mates && (gain < swing || bestCapture(match) >= gain - margin)){
+                continue;
+            }
+            list.add(new Candidate(game.index, ply, match.getFen(), match.toSan(moves[ply])));
+        }
+        return list;
+    }
+
+    private static int whiteMaterial(ChessMatch match){
+        int material = Evaluation.material(match);
+        return match.getCurrentPlayer() == Color.WHITE ? material : -material;
+    }
+
+    private static int bestCapture(ChessMatch match){
+        int[] list = new int[ChessMatch.MAX_MOVES];
+        int n = match.generateLegalMoves(list);
+        int best = 0;
+        for(int i=0; i<n; i++){
+            if(match.isCapture(list[i])){
+                best = Math.max(best, StaticExchange.evaluate(match, list[i]));
+            }
+        }
+        return best;
+    }
+
+    private void verify(BlockingQueue<Candidate> found, BlockingQueue<Output> outputs){
+        TranspositionTable table = new TranspositionTable(hashMegabytes);
+        Search search = new Search(table);
+        int[] list = new int[ChessMatch.MAX_MOVES];
+        try {
+            Candidate candidate;
+            while((candidate = found.take()) != END_CANDIDATE){
+                String line = null;
+                try {
+                    ChessMatch match = new ChessMatch(candidate.fen);
+                    if(match.generateLegalMoves(list) > 1){
+                        table.newSearch();
+                        SearchResult best = search.search(match, limits);
+                        if(best.getScore() >= winScore){
+                            SearchResult second = search.search(match, limits, new int[]{best.getBestMove()});
+                            if(second.getScore() < winScore && second.getScore() <= best.getScore() - margin){
+                                line = toLine(match, candidate, best);
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    //the output still goes out, or the writer would wait for this candidate forever
+                    failed.incrementAndGet();
+                }
+                verified.incrementAndGet();
+                outputs.put(new Output(candidate.game, -1, line));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String toLine(ChessMatch match, Candidate candidate, SearchResult best){
+        String bestMove = match.toUci(best.getBestMove());
+        StringBuilder pv = new StringBuilder();
+        for(int move: best.getPrincipalVariation()){
+            pv.append(pv.length() > 0 ? " " : "").append(match.toUci(move));
+            match.play(move);
+        }
+        String score = best.isMate() ? "mate " + best.getMateIn() : "cp " + best.getScore();
+        return candidate.fen + "\t" + bestMove + "\t" + score + "\t" + pv + "\t" + candidate.game + "\t" + candidate.ply + "\t" + candidate.played;
+    }
+
+    //the only thread that touches the output, so it also keeps track of which games are done
+    private void write(BlockingQueue<Output> outputs, BufferedWriter writer, Path checkpoint, long first, long start){
+        //candidates left to verify per game, known once the filter is done with it
+        Map<Long, Integer> pending = new HashMap<>();
+        TreeSet<Long> done = new TreeSet<>();
+        long next = first;
+        long lastCheckpoint = System.currentTimeMillis();
+        try {
+            Output out;
+            while((out = outputs.take()) != END_OUTPUT){
+                if(out.line != null){
+                    writer.write(out.line);
+                    writer.newLine();
+                    puzzles.incrementAndGet();
+                }
+                int left = out.work >= 0 ? out.work : pending.get(out.game) - 1;
+                if(left == 0){
+                    pending.remove(out.game);
+                    done.add(out.game);
+                    while(!done.isEmpty() && done.first() == next){
+                        done.pollFirst();
+                        next++;
+                    }
+                }else{
+                    pending.put(out.game, left);
+                }
+                if(System.currentTimeMillis() - lastCheckpoint >= checkpointIntervalMillis){
+                    saveCheckpoint(writer, checkpoint, next, start);
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+            saveCheckpoint(writer, checkpoint, next, start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //the puzzles reach the file before the checkpoint that counts their games as done
+    private void saveCheckpoint(BufferedWriter writer, Path checkpoint, long next, long start) throws IOException {
+        writer.flush();
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temporary, next + "\n", StandardCharsets.UTF_8);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(progress != null){
+            double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+            progress.printf("%d games done, %d read, %d failed, %d positions, %d candidates, %d verified, %d puzzles, %.1f games/s%n",
+                    next, gamesRead.get(), failed.get(), positions.get(), candidates.get(), verified.get(), puzzles.get(), gamesRead.get() / seconds);
+        }
+    }
+
+    private static final class Game {
+        private final long index;
+        private final PgnGame pgn;
+
+        Game(long index, PgnGame pgn) {
+            this.index = index;
+            this.pgn = pgn;
+        }
+    }
+
+    private static final class Candidate {
+        private final long game;
+        private final int ply;
+        private final String fen;
+        //in SAN
+        private final String played;
+
+        Candidate(long game, int ply, String fen, String played) {
+            this.game = game;
+            this.ply = ply;
+            this.fen = fen;
+            this.played = played;
+        }
+    }
+
+    //a filtered game with its number of candidates, or a verified candidate with -1 and its puzzle line if it is one
+    private static final class Output {
+        private final long game;
+        private final int work;
+        private final String line;
+
+        Output(long game, int work, String line) {
+            this.game = game;
+            this.work = work;
+            this.line = line;
+        }
+    }
+}
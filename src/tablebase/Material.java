@@ -0,0 +1,125 @@
+package tablebase;
+
+import java.util.Arrays;
+
+//piece set of a position in canonical order: white pieces then black, each by KQRBNP and then by square
+class Material {
+    static final String ORDER = "KQRBNP";
+
+    private final String white;
+    private final String black;
+    private final int[] squares;
+
+    Material(String white, String black, int[] squares) {
+        this.white = white;
+        this.black = black;
+        this.squares = squares;
+    }
+
+    //types and squares in any order, entries with type 0 are left out
+    static Material of(char[] types, boolean[] white, int[] squares){
+        StringBuilder whiteTypes = new StringBuilder();
+        StringBuilder blackTypes = new StringBuilder();
+        int[] sorted = new int[squares.length];
+        int count = 0;
+        for(int side=0; side<2; side++){
+            int groupStart = count;
+            for(char type: ORDER.toCharArray()){
+                for(int i=0; i<types.length; i++){
+                    if(types[i] == type && white[i] == (side == 0)){
+                        sorted[count++] = squares[i];
+                        (side == 0 ? whiteTypes : blackTypes).append(type);
+                    }
+                }
+            }
+            sortGroups(side == 0 ? whiteTypes.toString() : blackTypes.toString(), sorted, groupStart);
+        }
+        return new Material(whiteTypes.toString(), blackTypes.toString(), Arrays.copyOf(sorted, count));
+    }
+
+    //same position seen from the other side: colors swapped and ranks flipped
+    Material mirrored(){
+        int[] mirroredSquares = new int[squares.length];
+        for(int i=0; i<black.length(); i++){
+            mirroredSquares[i] = flip(squares[white.length() + i]);
+        }
+        for(int i=0; i<white.length(); i++){
+            mirroredSquares[black.length() + i] = flip(squares[i]);
+        }
+        sortGroups(black, mirroredSquares, 0);
+        sortGroups(white, mirroredSquares, black.length());
+        return new Material(black, white, mirroredSquares);
+    }
+
+    static int flip(int square){
+        return (7 - square / 8) * 8 + square % 8;
+    }
+
+    static void sortGroups(String types, int[] squares, int offset){
+        int start = 0;
+        for(int i=1; i<=types.length(); i++){
+            if(i == types.length() || types.charAt(i) != types.charAt(start)){
+                Arrays.sort(squares, offset + start, offset + i);
+                start = i;
+            }
+        }
+    }
+
+    String getSignature(){
+        return white + "v" + black;
+    }
+
+    String getWhite(){
+        return white;
+    }
+
+    String getBlack(){
+        return black;
+    }
+
+    //bare kings or a single minor piece can never mate
+    boolean isInsufficient(){
+        String pieces = white.substring(1) + black.substring(1);
+        return pieces.isEmpty() || pieces.equals("B") || pieces.equals("N");
+    }
+
+    //file name orientation: the side with more material first, as in Syzygy names
+    static String canonicalSignature(String white, String black){
+        int cmp = Integer.compare(value(white), value(black));
+        if(cmp == 0){
+            cmp = Integer.compare(white.length(), black.length());
+        }
+        if(cmp == 0){
+            cmp = black.compareTo(white);
+        }
+        return cmp >= 0 ? white + "v" + black : black + "v" + white;
+    }
+
+    private static int value(String types){
+        int value = 0;
+        for(char c: types.toCharArray()){
+            value += c == 'Q' ? 9 : c == 'R' ? 5 : c == 'B' || c == 'N' ? 3 : c == 'P' ? 1 : 0;
+        }
+        return value;
+    }
+
+    int pieceCount(){
+        return squares.length;
+    }
+
+    long index(boolean whiteToMove){
+        return index(whiteToMove, squares);
+    }
+
+    static long index(boolean whiteToMove, int[] squares){
+        long index = whiteToMove ? 0 : 1;
+        for(int sq: squares){
+            index = index * 64 + sq;
+        }
+        return index;
+    }
+
+    static long entries(int pieceCount){
+        return 2L << (6 * pieceCount);
+    }
+}
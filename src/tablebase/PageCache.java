@@ -0,0 +1,88 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//keeps at most maxPages mapped regions alive across all open tables, least recently used first out
+class PageCache {
+    static final int PAGE_SIZE = 1 << 16;
+
+    private final int maxPages;
+    private final Map<PageKey, MappedByteBuffer> pages;
+    private long hits;
+    private long misses;
+
+    PageCache(int maxPages) {
+        if(maxPages < 1){
+            throw new TablebaseException("Page cache must hold at least 1 page");
+        }
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, MappedByteBuffer> eldest) {
+                return size() > PageCache.this.maxPages;
+            }
+        };
+    }
+
+    synchronized int readByte(TablebaseFile file, long offset){
+        long page = offset / PAGE_SIZE;
+        PageKey key = new PageKey(file, page);
+        MappedByteBuffer buffer = pages.get(key);
+        if(buffer == null){
+            misses++;
+            buffer = map(file.getChannel(), page * PAGE_SIZE, Math.min(PAGE_SIZE, file.size() - page * PAGE_SIZE));
+            pages.put(key, buffer);
+        }else{
+            hits++;
+        }
+        return buffer.get((int) (offset - page * PAGE_SIZE)) & 0xFF;
+    }
+
+    synchronized void evict(TablebaseFile file){
+        pages.keySet().removeIf(k -> k.file == file);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size){
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new TablebaseException("Error mapping tablebase page at " + position, e);
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class PageKey {
+        private final TablebaseFile file;
+        private final long page;
+
+        PageKey(TablebaseFile file, long page) {
+            this.file = file;
+            this.page = page;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof PageKey)){
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return file == other.file && page == other.page;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(file) * 31 + Long.hashCode(page);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package tablebase;
+
+public class TablebaseException extends RuntimeException{
+    public TablebaseException(String message) {
+        super(message);
+    }
+
+    public TablebaseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
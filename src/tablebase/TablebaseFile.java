@@ -0,0 +1,92 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//uncompressed table: 16 byte header followed by the packed entries of one material signature
+class TablebaseFile implements AutoCloseable {
+    static final int MAGIC = 0x43544231; // "CTB1"
+    static final int HEADER_SIZE = 16;
+    static final byte KIND_WDL = 0;
+    static final byte KIND_DTZ = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final PageCache cache;
+    private final byte kind;
+    private final int pieceCount;
+    private final long entries;
+    private final long size;
+
+    TablebaseFile(Path path, PageCache cache) {
+        this.path = path;
+        this.cache = cache;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC){
+                channel.close();
+                throw new TablebaseException("Not a tablebase file: " + path);
+            }
+            kind = header.get();
+            pieceCount = header.get();
+            header.getShort();
+            entries = header.getLong();
+        } catch (IOException e) {
+            throw new TablebaseException("Error opening tablebase " + path, e);
+        }
+        if(entries != Material.entries(pieceCount) || size < HEADER_SIZE + dataSize(kind, entries)){
+            close();
+            throw new TablebaseException("Truncated tablebase file: " + path);
+        }
+    }
+
+    static long dataSize(byte kind, long entries){
+        return kind == KIND_WDL ? (entries + 3) / 4 : entries;
+    }
+
+    Wdl wdl(long index){
+        if(kind != KIND_WDL){
+            throw new IllegalStateException(path + " is not a WDL table");
+        }
+        int b = cache.readByte(this, HEADER_SIZE + index / 4);
+        return Wdl.fromCode((b >>> ((index % 4) * 2)) & 3);
+    }
+
+    //plies to mate or to the capture or promotion that leaves the table; -1 for draws and unknown entries
+    int dtz(long index){
+        if(kind != KIND_DTZ){
+            throw new IllegalStateException(path + " is not a DTZ table");
+        }
+        int b = cache.readByte(this, HEADER_SIZE + index);
+        return b == 0xFF ? -1 : b;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getPieceCount() {
+        return pieceCount;
+    }
+
+    @Override
+    public void close() {
+        cache.evict(this);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new TablebaseException("Error closing tablebase " + path, e);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package tablebase;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+//retrograde analysis for small piece sets, writing tables that Tablebases can probe
+public class TablebaseGenerator {
+    public static final int MAX_PIECES = 4;
+    private static final int CHUNK = 4096;
+    private static final int UNSET_DEPTH = 0xFF;
+    private static final int MAX_DEPTH = 254;
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+
+    public TablebaseGenerator(Path directory) {
+        this(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    //signature such as KQvK; tables for the captures and promotions it leads to are generated first
+    public void generate(String signature){
+        String[] sides = parseSignature(signature);
+        if(sides[0].length() + sides[1].length() > MAX_PIECES){
+            throw new TablebaseException("Tables are limited to " + MAX_PIECES + " pieces: " + signature);
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new TablebaseException("Error creating tablebase directory " + directory, e);
+        }
+        for(String child: childSignatures(sides[0], sides[1])){
+            try(Tablebases existing = new Tablebases(directory)){
+                if(existing.contains(child)){
+                    continue;
+                }
+            }
+            generate(child);
+        }
+        try(Tablebases children = new Tablebases(directory)){
+            new Table(sides[0], sides[1], children).build();
+        }
+    }
+
+    private static String[] parseSignature(String signature){
+        String[] sides = signature.toUpperCase().split("V");
+        if(sides.length != 2 || !isSide(sides[0]) || !isSide(sides[1])){
+            throw new TablebaseException("Invalid material signature: " + signature);
+        }
+        return sides;
+    }
+
+    private static boolean isSide(String types){
+        if(types.isEmpty() || types.charAt(0) != 'K'){
+            return false;
+        }
+        for(int i=1; i<types.length(); i++){
+            if(Material.ORDER.indexOf(types.charAt(i)) < 1){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> childSignatures(String white, String black){
+        List<String> children = new ArrayList<>();
+        for(int side=0; side<2; side++){
+            String own = side == 0 ? white : black;
+            String other = side == 0 ? black : white;
+            for(int i=1; i<own.length(); i++){
+                addChild(children, other, own.substring(0, i) + own.substring(i + 1));
+                if(own.charAt(i) == 'P'){
+                    for(char type: "QRBN".toCharArray()){
+                        addChild(children, other, own.substring(0, i) + type + own.substring(i + 1));
+                    }
+                }
+            }
+        }
+        return children;
+    }
+
+    private static void addChild(List<String> children, String a, String b){
+        String signature = Material.canonicalSignature(sortTypes(a), sortTypes(b));
+        String[] sides = signature.split("v");
+        if(!new Material(sides[0], sides[1], new int[0]).isInsufficient() && !children.contains(signature)){
+            children.add(signature);
+        }
+    }
+
+    private static String sortTypes(String types){
+        char[] chars = types.toCharArray();
+        Character[] boxed = new Character[chars.length];
+        for(int i=0; i<chars.length; i++){
+            boxed[i] = chars[i];
+        }
+        Arrays.sort(boxed, (x, y) -> Material.ORDER.indexOf(x) - Material.ORDER.indexOf(y));
+        StringBuilder sb = new StringBuilder();
+        for(Character c: boxed){
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void parallel(int entries, IntConsumer chunk){
+        try {
+            pool.submit(() -> IntStream.range(0, (entries + CHUNK - 1) / CHUNK).parallel().forEach(chunk)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TablebaseException("Tablebase generation interrupted");
+        } catch (ExecutionException e) {
+            throw new TablebaseException("Tablebase generation failed", e.getCause());
+        }
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 2){
+            System.out.println("usage: TablebaseGenerator <directory> <signature>...");
+            return;
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]));
+        for(int i=1; i<args.length; i++){
+            long start = System.currentTimeMillis();
+            generator.generate(args[i]);
+            System.out.println(args[i] + " generated in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    //one table being generated: 2-bit results, 8-bit move counters and depths, one legality bit per entry
+    private class Table {
+        private final String white;
+        private final String black;
+        private final char[] types;
+        private final boolean[] whites;
+        private final int pieceCount;
+        private final int entries;
+        private final Tablebases children;
+
+        private final AtomicLongArray results;
+        private final AtomicIntegerArray counts;
+        private final byte[] depths;
+        private final long[] legal;
+
+        Table(String white, String black, Tablebases children) {
+            this.white = white;
+            this.black = black;
+            this.children = children;
+            this.pieceCount = white.length() + black.length();
+            this.entries = (int) Material.entries(pieceCount);
+            this.types = (white + black).toCharArray();
+            this.whites = new boolean[pieceCount];
+            Arrays.fill(whites, 0, white.length(), true);
+            results = new AtomicLongArray((entries + 31) / 32);
+            counts = new AtomicIntegerArray((entries + 3) / 4);
+            depths = new byte[entries];
+            Arrays.fill(depths, (byte) UNSET_DEPTH);
+            legal = new long[(entries + 63) / 64];
+        }
+
+        void build(){
+            parallel(entries, this::initialize);
+            AtomicBoolean changed = new AtomicBoolean(true);
+            //conversions are resolved at depth 1 during initialization, so always walk back from both
+            for(int depth=0; depth<MAX_DEPTH && (changed.get() || depth <= 1); depth++){
+                changed.set(false);
+                int d = depth;
+                parallel(entries, chunk -> retreat(chunk, d, changed));
+            }
+            write();
+        }
+
+        //resolves mates, stalemates and moves that leave the table, and counts the moves that stay in it
+        private void initialize(int chunk){
+            int[] moves = new int[ChessMatch.MAX_MOVES];
+            int[] squares = new int[pieceCount];
+            for(int index=chunk*CHUNK; index<Math.min(entries, (chunk+1)*CHUNK); index++){
+                boolean whiteToMove = decode(index, squares);
+                ChessMatch match = setUp(squares, whiteToMove);
+                if(match == null){
+                    continue;
+                }
+                legal[index >>> 6] |= 1L << (index & 63);
+                int n = match.generateLegalMoves(moves);
+                if(n == 0){
+                    resolve(index, match.isCheck() ? Wdl.LOSS : Wdl.DRAW, 0);
+                    continue;
+                }
+                int count = 0;
+                boolean win = false;
+                for(int i=0; i<n && !win; i++){
+                    Wdl child = probeConversion(squares, whiteToMove, moves[i]);
+                    if(child == null){
+                        count++;
+                    }else if(child == Wdl.LOSS){
+                        win = true;
+                    }else if(child == Wdl.DRAW){
+                        count++;
+                    }
+                }
+                if(win){
+                    resolve(index, Wdl.WIN, 1);
+                }else if(count == 0){
+                    resolve(index, Wdl.LOSS, 1);
+                }else{
+                    counts.addAndGet(index >>> 2, count << ((index & 3) * 8));
+                }
+            }
+        }
+
+        //walks back from the positions resolved at this depth with unmoves
+        private void retreat(int chunk, int depth, AtomicBoolean changed){
+            int[] moves = new int[ChessMatch.MAX_MOVES];
+            int[] squares = new int[pieceCount];
+            int[] previous = new int[pieceCount];
+            for(int index=chunk*CHUNK; index<Math.min(entries, (chunk+1)*CHUNK); index++){
+                if((depths[index] & 0xFF) != depth){
+                    continue;
+                }
+                Wdl result = result(index);
+                if(result == Wdl.DRAW){
+                    continue;
+                }
+                boolean whiteToMove = decode(index, squares);
+                ChessMatch match = setUp(squares, whiteToMove);
+                int n = match.generateUnmoves(moves);
+                for(int i=0; i<n; i++){
+                    System.arraycopy(squares, 0, previous, 0, pieceCount);
+                    previous[indexOf(squares, Move.from(moves[i]))] = Move.to(moves[i]);
+                    Material.sortGroups(white, previous, 0);
+                    Material.sortGroups(black, previous, white.length());
+                    int before = (int) Material.index(!whiteToMove, previous);
+                    if((legal[before >>> 6] & (1L << (before & 63))) == 0){
+                        continue;
+                    }
+                    if(result == Wdl.LOSS){
+                        if(resolve(before, Wdl.WIN, depth + 1)){
+                            changed.set(true);
+                        }
+                    }else if(decrementCount(before) == 0 && resolve(before, Wdl.LOSS, depth + 1)){
+                        changed.set(true);
+                    }
+                }
+            }
+        }
+
+        //result of a capture or promotion for the player who moves next, null for moves that stay in this table
+        private Wdl probeConversion(int[] squares, boolean whiteToMove, int move){
+            int moving = indexOf(squares, Move.from(move));
+            int captured = indexOf(squares, Move.to(move));
+            if(captured < 0 && !Move.isPromotion(move)){
+                return null;
+            }
+            char[] childTypes = types.clone();
+            int[] childSquares = squares.clone();
+            childSquares[moving] = Move.to(move);
+            if(captured >= 0){
+                childTypes[captured] = 0;
+            }
+            if(Move.isPromotion(move)){
+                childTypes[moving] = Move.promotion(move);
+            }
+            Material child = Material.of(childTypes, whites, childSquares);
+            if(child.isInsufficient()){
+                return Wdl.DRAW;
+            }
+            Wdl wdl = children.probeWdl(child, !whiteToMove);
+            if(wdl == null){
+                throw new TablebaseException("Missing table " + child.getSignature());
+            }
+            return wdl;
+        }
+
+        private int indexOf(int[] squares, int square){
+            for(int i=0; i<squares.length; i++){
+                if(squares[i] == square){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean decode(int index, int[] squares){
+            for(int i=pieceCount-1; i>=0; i--){
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            return index == 0;
+        }
+
+        //null for illegal or duplicate entries
+        private ChessMatch setUp(int[] squares, boolean whiteToMove){
+            char[] board = new char[64];
+            for(int i=0; i<pieceCount; i++){
+                if(board[squares[i]] != 0){
+                    return null;
+                }
+                if(i > 0 && types[i] == types[i-1] && whites[i] == whites[i-1] && squares[i] < squares[i-1]){
+                    return null;
+                }
+                if(types[i] == 'P' && (squares[i] < 8 || squares[i] >= 56)){
+                    return null;
+                }
+                board[squares[i]] = whites[i] ? types[i] : Character.toLowerCase(types[i]);
+            }
+            StringBuilder fen = new StringBuilder();
+            for(int row=0; row<8; row++){
+                int empty = 0;
+                for(int column=0; column<8; column++){
+                    char c = board[row * 8 + column];
+                    if(c == 0){
+                        empty++;
+                        continue;
+                    }
+                    if(empty > 0){
+                        fen.append(empty);
+                        empty = 0;
+                    }
+                    fen.append(c);
+                }
+                if(empty > 0){
+                    fen.append(empty);
+                }
+                if(row < 7){
+                    fen.append('/');
+                }
+            }
+            fen.append(whiteToMove ? " w - - 0 1" : " b - - 0 1");
+            try {
+                return new ChessMatch(fen.toString());
+            } catch (ChessException e) {
+                return null;
+            }
+        }
+
+        private Wdl result(int index){
+            return Wdl.fromCode((int) (results.get(index >>> 5) >>> ((index & 31) * 2)) & 3);
+        }
+
+        private boolean resolve(int index, Wdl wdl, int depth){
+            int slot = index >>> 5;
+            int shift = (index & 31) * 2;
+            while(true){
+                long current = results.get(slot);
+                if(((current >>> shift) & 3) != Wdl.UNKNOWN_CODE){
+                    return false;
+                }
+                if(results.compareAndSet(slot, current, current | ((long) wdl.code() << shift))){
+                    depths[index] = (byte) Math.min(depth, MAX_DEPTH);
+                    return true;
+                }
+            }
+        }
+
+        private int decrementCount(int index){
+            int slot = index >>> 2;
+            int shift = (index & 3) * 8;
+            while(true){
+                int current = counts.get(slot);
+                int count = (current >>> shift) & 0xFF;
+                if(count == 0){
+                    return -1;
+                }
+                if(counts.compareAndSet(slot, current, current - (1 << shift))){
+                    return count - 1;
+                }
+            }
+        }
+
+        //unresolved legal positions are draws
+        private void write(){
+            String signature = white + "v" + black;
+            writeFile(signature + Tablebases.WDL_SUFFIX, TablebaseFile.KIND_WDL, (buffer, from, to) -> {
+                for(int index=from; index<to; index+=4){
+                    int b = 0;
+                    for(int k=0; k<4 && index+k<entries; k++){
+                        b |= wdlCode(index + k) << (k * 2);
+                    }
+                    buffer.put((byte) b);
+                }
+            });
+            writeFile(signature + Tablebases.DTZ_SUFFIX, TablebaseFile.KIND_DTZ, (buffer, from, to) -> {
+                for(int index=from; index<to; index++){
+                    Wdl wdl = result(index);
+                    buffer.put(wdl == null || wdl == Wdl.DRAW ? (byte) UNSET_DEPTH : depths[index]);
+                }
+            });
+        }
+
+        private int wdlCode(int index){
+            if((legal[index >>> 6] & (1L << (index & 63))) == 0){
+                return Wdl.UNKNOWN_CODE;
+            }
+            Wdl wdl = result(index);
+            return wdl == null ? Wdl.DRAW.code() : wdl.code();
+        }
+
+        private void writeFile(String name, byte kind, EntryWriter writer){
+            Path target = directory.resolve(name);
+            Path temp = directory.resolve(name + ".tmp");
+            try {
+                try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                    ByteBuffer header = ByteBuffer.allocate(TablebaseFile.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+                    header.putInt(TablebaseFile.MAGIC).put(kind).put((byte) pieceCount).putShort((short) 0).putLong(entries);
+                    header.flip();
+                    channel.write(header);
+                    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+                    int step = kind == TablebaseFile.KIND_WDL ? buffer.capacity() * 4 : buffer.capacity();
+                    for(int from=0; from<entries; from+=step){
+                        buffer.clear();
+                        writer.write(buffer, from, Math.min(entries, from + step));
+                        buffer.flip();
+                        while(buffer.hasRemaining()){
+                            channel.write(buffer);
+                        }
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new TablebaseException("Error writing tablebase " + target, e);
+            }
+        }
+    }
+
+    private interface EntryWriter {
+        void write(ByteBuffer buffer, int from, int to);
+    }
+}
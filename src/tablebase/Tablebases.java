@@ -0,0 +1,208 @@
+package tablebase;
+
+import chess.ChessMatch;
+import chess.Color;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+//endgame tables found in a local directory, named by material signature such as KQvK.ctbw
+public class Tablebases implements AutoCloseable {
+    public static final String WDL_SUFFIX = ".ctbw";
+    public static final String DTZ_SUFFIX = ".ctbz";
+
+    private final Path directory;
+    private final PageCache cache;
+    private final Map<String, TablebaseFile> files = new HashMap<>();
+    //by material, see locate
+    private final Map<Long, Table> wdlTables = new HashMap<>();
+    private final Map<Long, Table> dtzTables = new HashMap<>();
+    private int maxPieces;
+
+    public Tablebases(Path directory) {
+        this(directory, 1024);
+    }
+
+    public Tablebases(Path directory, int maxPages) {
+        this.directory = directory;
+        this.cache = new PageCache(maxPages);
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*v*" + WDL_SUFFIX)){
+            for(Path p: stream){
+                String name = p.getFileName().toString();
+                maxPieces = Math.max(maxPieces, name.length() - WDL_SUFFIX.length() - 1);
+            }
+        } catch (IOException e) {
+            throw new TablebaseException("Error reading tablebase directory " + directory, e);
+        }
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    //null when the position is not covered by the local tables
+    public Wdl probeWdl(ChessMatch match){
+        Table table = locate(match, wdlTables, WDL_SUFFIX);
+        return table == null ? null : table.file.wdl(table.index(match));
+    }
+
+    //-1 when the position is not covered by the local tables
+    public int probeDtz(ChessMatch match){
+        Table table = locate(match, dtzTables, DTZ_SUFFIX);
+        return table == null ? -1 : table.file.dtz(table.index(match));
+    }
+
+    public long getCacheHits(){
+        return cache.getHits();
+    }
+
+    public long getCacheMisses(){
+        return cache.getMisses();
+    }
+
+    //the search probes at every endgame node, so this reads the piece lists of the board and builds nothing
+    //but the boxed key; the file names are only put together the first time a material is seen
+    private Table locate(ChessMatch match, Map<Long, Table> tables, String suffix){
+        //tables are built without castling and en passant rights
+        if(match.getPieceCount() > maxPieces || match.getCastlingRights() != 0 || match.canCaptureEnPassant()){
+            return null;
+        }
+        long key = 0;
+        for(int type=0; type<Material.ORDER.length(); type++){
+            key = key << 8 | match.getPieceCount(Color.WHITE, type) << 4 | match.getPieceCount(Color.BLACK, type);
+        }
+        Table table;
+        synchronized (this){
+            table = tables.get(key);
+            if(table == null){
+                table = table(match, suffix);
+                tables.put(key, table);
+            }
+        }
+        return table.file == null ? null : table;
+    }
+
+    private Table table(ChessMatch match, String suffix){
+        String white = types(match, Color.WHITE);
+        String black = types(match, Color.BLACK);
+        TablebaseFile file = file(white + "v" + black + suffix);
+        if(file != null){
+            return new Table(file, false);
+        }
+        return new Table(file(black + "v" + white + suffix), true);
+    }
+
+    private static String types(ChessMatch match, Color color){
+        StringBuilder sb = new StringBuilder();
+        for(int type=0; type<Material.ORDER.length(); type++){
+            for(int i=0; i<match.getPieceCount(color, type); i++){
+                sb.append(Material.ORDER.charAt(type));
+            }
+        }
+        return sb.toString();
+    }
+
+    Wdl probeWdl(Material material, boolean whiteToMove){
+        Probe probe = locate(material, whiteToMove, WDL_SUFFIX);
+        return probe == null ? null : probe.file.wdl(probe.index);
+    }
+
+    boolean contains(String signature){
+        String[] sides = signature.split("v");
+        return file(signature + WDL_SUFFIX) != null || file(sides[1] + "v" + sides[0] + WDL_SUFFIX) != null;
+    }
+
+    private Probe locate(Material material, boolean whiteToMove, String suffix){
+        TablebaseFile file = file(material.getSignature() + suffix);
+        if(file != null){
+            return new Probe(file, material.index(whiteToMove));
+        }
+        Material mirrored = material.mirrored();
+        file = file(mirrored.getSignature() + suffix);
+        if(file != null){
+            return new Probe(file, mirrored.index(!whiteToMove));
+        }
+        return null;
+    }
+
+    private synchronized TablebaseFile file(String name){
+        if(files.containsKey(name)){
+            return files.get(name);
+        }
+        Path path = directory.resolve(name);
+        TablebaseFile file = Files.isRegularFile(path) ? new TablebaseFile(path, cache) : null;
+        files.put(name, file);
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        for(TablebaseFile file: files.values()){
+            if(file != null){
+                file.close();
+            }
+        }
+        files.clear();
+        wdlTables.clear();
+        dtzTables.clear();
+    }
+
+    //the file of one material, null when there is none, and whether it has the colors the other way round
+    private static final class Table {
+        private final TablebaseFile file;
+        private final boolean mirrored;
+
+        Table(TablebaseFile file, boolean mirrored) {
+            this.file = file;
+            this.mirrored = mirrored;
+        }
+
+        //the same as Material.index, read from the piece lists
+        long index(ChessMatch match){
+            boolean whiteToMove = match.getCurrentPlayer() == Color.WHITE;
+            if(mirrored){
+                long index = squares(match, Color.BLACK, true, whiteToMove ? 1 : 0);
+                return squares(match, Color.WHITE, true, index);
+            }
+            long index = squares(match, Color.WHITE, false, whiteToMove ? 0 : 1);
+            return squares(match, Color.BLACK, false, index);
+        }
+
+        //the squares of one color by type and then in ascending order, picked one by one since the lists are not sorted
+        private static long squares(ChessMatch match, Color color, boolean flip, long index){
+            for(int type=0; type<Material.ORDER.length(); type++){
+                int count = match.getPieceCount(color, type);
+                int previous = -1;
+                for(int n=0; n<count; n++){
+                    int next = 64;
+                    for(int i=0; i<count; i++){
+                        int square = match.getPieceSquare(color, type, i);
+                        if(flip){
+                            square = Material.flip(square);
+                        }
+                        if(square > previous && square < next){
+                            next = square;
+                        }
+                    }
+                    index = index * 64 + next;
+                    previous = next;
+                }
+            }
+            return index;
+        }
+    }
+
+    private static final class Probe {
+        private final TablebaseFile file;
+        private final long index;
+
+        Probe(TablebaseFile file, long index) {
+            this.file = file;
+            this.index = index;
+        }
+    }
+}
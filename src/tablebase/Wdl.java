@@ -0,0 +1,28 @@
+package tablebase;
+
+//result for the side to move
+public enum Wdl {
+    LOSS, DRAW, WIN;
+
+    //2-bit codes used in the table files, 0 marks illegal or unresolved positions
+    static final int UNKNOWN_CODE = 0;
+    //values() copies the array on every call
+    private static final Wdl[] VALUES = values();
+
+    int code(){
+        return ordinal() + 1;
+    }
+
+    static Wdl fromCode(int code){
+        if(code == UNKNOWN_CODE){
+            return null;
+        }
+        return VALUES[code - 1];
+    }
+
+    public Wdl opposite(){
+        if(this == WIN) return LOSS;
+        if(this == LOSS) return WIN;
+        return DRAW;
+    }
+}